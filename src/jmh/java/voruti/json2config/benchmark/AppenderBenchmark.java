@@ -0,0 +1,83 @@
+package voruti.json2config.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import voruti.json2config.model.IAppendable;
+import voruti.json2config.service.Appender;
+import voruti.json2config.service.SharedService;
+import voruti.json2config.service.Type;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks appending generated channel links to a generated tree of ".items" files. Every iteration works on a
+ * freshly written tree, because appending modifies the files.
+ *
+ * @author voruti
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class AppenderBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"1000"})
+    private int itemsPerFile;
+
+    private final JsonDbGenerator generator = new JsonDbGenerator(42);
+    private List<IAppendable> channelLinks;
+    private Path directory;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        channelLinks = new ArrayList<>();
+        SharedService.streamJson(new StringReader(generator.channelLinks(entries)), Type.CHANNEL,
+                (key, convertible) -> channelLinks.add((IAppendable) convertible));
+    }
+
+    @Setup(Level.Iteration)
+    public void writeItemsTree() throws IOException {
+        directory = Files.createTempDirectory("json2config-benchmark");
+        generator.writeItemsTree(directory, entries, itemsPerFile);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteItemsTree() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+
+    @Benchmark
+    public void searchAndAppend() {
+        Appender.searchAndAppend(directory.toString(), channelLinks);
+    }
+}
@@ -0,0 +1,76 @@
+package voruti.json2config.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import voruti.json2config.model.IConvertible;
+import voruti.json2config.service.Converter;
+import voruti.json2config.service.SharedService;
+import voruti.json2config.service.Type;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing, rendering and arranging of generated Item.json files.
+ *
+ * @author voruti
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConverterBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    private String itemJson;
+    private Map<String, IConvertible> itemMap;
+
+
+    @Setup
+    public void setUp() {
+        itemJson = new JsonDbGenerator(42).items(entries);
+        itemMap = SharedService.jsonToConvertibleMap(itemJson, Type.ITEM);
+    }
+
+
+    @Benchmark
+    public Map<String, IConvertible> jsonToConvertibleMap() {
+        return SharedService.jsonToConvertibleMap(itemJson, Type.ITEM);
+    }
+
+    @Benchmark
+    public void toConfigLine(Blackhole blackhole) {
+        for (Map.Entry<String, IConvertible> entry : itemMap.entrySet()) {
+            blackhole.consume(entry.getValue().toConfigLine(entry.getKey()));
+        }
+    }
+
+    @Benchmark
+    public void appendTo(Blackhole blackhole) {
+        StringBuilder buffer = new StringBuilder(256);
+        for (Map.Entry<String, IConvertible> entry : itemMap.entrySet()) {
+            buffer.setLength(0);
+            entry.getValue().appendTo(buffer, entry.getKey());
+            blackhole.consume(buffer);
+        }
+    }
+
+    @Benchmark
+    public Object convertibleMapToLines() {
+        return Converter.convertibleMapToLines(itemMap);
+    }
+}
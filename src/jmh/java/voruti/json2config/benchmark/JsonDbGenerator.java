@@ -0,0 +1,300 @@
+package voruti.json2config.benchmark;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic but realistic JsonDB files (Item, ItemChannelLink, Metadata) and matching ".items" trees.
+ * The output only depends on the seed and the number of entries, so benchmark runs are reproducible.
+ *
+ * @author voruti
+ */
+public class JsonDbGenerator {
+
+    private static final String[] ITEM_TYPES = {"Switch", "Switch", "Switch", "Dimmer", "Contact", "String",
+            "Number", "Number:Temperature", "Number:Power", "Rollershutter", "Color", "DateTime"};
+    private static final String[] CATEGORIES = {"light", "poweroutlet", "window", "temperature", "energy", "blinds",
+            "colorlight", "time", null};
+    private static final String[] TAGS = {"Lighting", "Switchable", "Window", "Temperature", "Measurement",
+            "Blinds", "Power"};
+    private static final String[] BINDINGS = {"mqtt:topic", "zwave:device", "hue:0210", "knx:device", "shelly:shelly1"};
+    private static final String[] CHANNELS = {"switch", "power", "temperature", "dimmer", "contact", "color"};
+    private static final String[] NAMESPACES = {"ga", "alexa", "homekit", "stateDescription"};
+
+    private static final String ITEM_CLASS = "org.eclipse.smarthome.core.items.ManagedItemProvider$PersistedItem";
+    private static final String LINK_CLASS = "org.eclipse.smarthome.core.thing.link.ItemChannelLink";
+    private static final String METADATA_CLASS = "org.eclipse.smarthome.core.items.Metadata";
+
+    private final long seed;
+
+
+    public JsonDbGenerator(long seed) {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Writes a JsonDB database to {@code directory}: "Item.json", "ItemChannelLink.json", "Metadata.json" and
+     * ".items" files in the subdirectory "items".
+     * <p>
+     * Usage: {@code JsonDbGenerator <directory> <entries> [seed]}
+     *
+     * @param args the program arguments
+     * @throws IOException if a file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int entries = Integer.parseInt(args[1]);
+        JsonDbGenerator generator = new JsonDbGenerator(args.length > 2 ? Long.parseLong(args[2]) : 42);
+
+        Files.createDirectories(directory);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("Item.json"), StandardCharsets.UTF_8)) {
+            generator.writeItems(writer, entries);
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("ItemChannelLink.json"), StandardCharsets.UTF_8)) {
+            generator.writeChannelLinks(writer, entries);
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("Metadata.json"), StandardCharsets.UTF_8)) {
+            generator.writeMetadata(writer, entries);
+        }
+        generator.writeItemsTree(directory.resolve("items"), entries, 1000);
+    }
+
+
+    /**
+     * @param index the index of the item
+     * @return the name of the item with {@code index}
+     */
+    public static String itemName(int index) {
+        return "Item_" + index;
+    }
+
+    /**
+     * Returns the content of an Item.json file with {@code entries} items.
+     *
+     * @param entries the number of items
+     * @return the JSON as {@link String}
+     */
+    public String items(int entries) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeItems(writer, entries);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Returns the content of an ItemChannelLink.json file for {@code entries} items.
+     *
+     * @param entries the number of items
+     * @return the JSON as {@link String}
+     */
+    public String channelLinks(int entries) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeChannelLinks(writer, entries);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Returns the content of a Metadata.json file for {@code entries} items.
+     *
+     * @param entries the number of items
+     * @return the JSON as {@link String}
+     */
+    public String metadata(int entries) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeMetadata(writer, entries);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes an Item.json file with {@code entries} items: about 2% groups, the rest a mix of common item types with
+     * labels, categories, group memberships and tags.
+     *
+     * @param out     the {@link Writer} to write to
+     * @param entries the number of items
+     * @throws IOException if the {@code out} can't be written
+     */
+    public void writeItems(Writer out, int entries) throws IOException {
+        Random random = new Random(seed);
+        JsonWriter json = newJsonWriter(out);
+        json.beginObject();
+        for (int i = 0; i < entries; i++) {
+            json.name(itemName(i)).beginObject();
+            json.name("class").value(ITEM_CLASS);
+            json.name("value").beginObject();
+
+            boolean group = i % 50 == 0;
+            String itemType = group ? "Group" : pick(random, ITEM_TYPES);
+            if (group && random.nextBoolean()) {
+                json.name("baseItemType").value("Switch");
+            }
+            json.name("groupNames").beginArray();
+            json.value("gFloor" + random.nextInt(3));
+            if (!group) {
+                json.value(itemName(random.nextInt(Math.max(1, entries / 50)) * 50));
+            }
+            json.endArray();
+            json.name("itemType").value(itemType);
+            json.name("tags").beginArray();
+            int tags = random.nextInt(3);
+            for (int t = 0; t < tags; t++) {
+                json.value(TAGS[(i + t) % TAGS.length]);
+            }
+            json.endArray();
+            json.name("label").value("Label of " + itemType + " " + i);
+            String category = pick(random, CATEGORIES);
+            if (category != null) {
+                json.name("category").value(category);
+            }
+            if (group && random.nextBoolean()) {
+                json.name("functionName").value("OR");
+                json.name("functionParams").beginArray().value("ON").value("OFF").endArray();
+            }
+
+            json.endObject();
+            json.endObject();
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes an ItemChannelLink.json file with one or two channel links per non-group item. Every tenth link uses a
+     * profile with additional properties.
+     *
+     * @param out     the {@link Writer} to write to
+     * @param entries the number of items
+     * @throws IOException if the {@code out} can't be written
+     */
+    public void writeChannelLinks(Writer out, int entries) throws IOException {
+        Random random = new Random(seed + 1);
+        JsonWriter json = newJsonWriter(out);
+        json.beginObject();
+        for (int i = 0; i < entries; i++) {
+            if (i % 50 == 0) {
+                continue;
+            }
+            int links = random.nextInt(4) == 0 ? 2 : 1;
+            for (int l = 0; l < links; l++) {
+                String[] binding = pick(random, BINDINGS).split(":");
+                String thing = Integer.toHexString(random.nextInt());
+                String channel = pick(random, CHANNELS);
+
+                json.name(itemName(i) + " -> " + String.join(":", binding) + ":" + thing + ":" + channel).beginObject();
+                json.name("class").value(LINK_CLASS);
+                json.name("value").beginObject();
+                json.name("channelUID").beginObject();
+                json.name("segments").beginArray().value(binding[0]).value(binding[1]).value(thing).value(channel).endArray();
+                json.endObject();
+                json.name("configuration").beginObject();
+                json.name("properties").beginObject();
+                if (random.nextInt(10) == 0) {
+                    json.name("profile").value("transform:MAP");
+                    json.name("function").value("map_" + channel + ".map");
+                } else {
+                    json.name("profile").value("system:default");
+                }
+                json.endObject();
+                json.endObject();
+                json.name("itemName").value(itemName(i));
+                json.endObject();
+                json.endObject();
+            }
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes a Metadata.json file with metadata for every third item.
+     *
+     * @param out     the {@link Writer} to write to
+     * @param entries the number of items
+     * @throws IOException if the {@code out} can't be written
+     */
+    public void writeMetadata(Writer out, int entries) throws IOException {
+        Random random = new Random(seed + 2);
+        JsonWriter json = newJsonWriter(out);
+        json.beginObject();
+        for (int i = 0; i < entries; i += 3) {
+            String namespace = pick(random, NAMESPACES);
+
+            json.name(namespace + ":" + itemName(i)).beginObject();
+            json.name("class").value(METADATA_CLASS);
+            json.name("value").beginObject();
+            json.name("key").beginObject();
+            json.name("segments").beginArray().value(namespace).value(itemName(i)).endArray();
+            json.endObject();
+            json.name("value").value(pick(random, TAGS));
+            json.name("configuration").beginObject().endObject();
+            json.endObject();
+            json.endObject();
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes ".items" files with {@code entries} items to {@code directory}, {@code itemsPerFile} items per file.
+     *
+     * @param directory    the directory to write to
+     * @param entries      the number of items
+     * @param itemsPerFile the maximum number of items per file
+     * @return the paths of the written files
+     * @throws IOException if a file can't be written
+     */
+    public List<Path> writeItemsTree(Path directory, int entries, int itemsPerFile) throws IOException {
+        Random random = new Random(seed + 3);
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        for (int start = 0; start < entries; start += itemsPerFile) {
+            Path file = directory.resolve(String.format("generated_%05d.items", files.size()));
+            List<String> lines = new ArrayList<>(itemsPerFile);
+            for (int i = start; i < Math.min(entries, start + itemsPerFile); i++) {
+                String itemType = i % 50 == 0 ? "Group" : pick(random, ITEM_TYPES);
+                lines.add(String.format("%-30s %-40s \"Label of %s %d\" <%s> (gFloor%d) [\"%s\"]", itemType, itemName(i),
+                        itemType, i, CATEGORIES[i % (CATEGORIES.length - 1)], random.nextInt(3), TAGS[i % TAGS.length]));
+                if (i % 20 == 0) {
+                    lines.add("");
+                }
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        return files;
+    }
+
+
+    private static JsonWriter newJsonWriter(Writer out) {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        return json;
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
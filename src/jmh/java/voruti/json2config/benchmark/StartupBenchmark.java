@@ -0,0 +1,107 @@
+package voruti.json2config.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the wall time of complete runs of the shadow jar on a JVM and of the native binary, on a small generated
+ * database where startup dominates. The paths are passed by the {@code jmh} Gradle task; the native binary has to be
+ * built with {@code ./gradlew nativeImage} first, otherwise its runs fail.
+ *
+ * @author voruti
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+public class StartupBenchmark {
+
+    @Param({"jvm", "native"})
+    private String launcher;
+
+    @Param({"100"})
+    private int entries;
+
+    private Path directory;
+    private List<String> command;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("json2config-startup");
+        JsonDbGenerator generator = new JsonDbGenerator(42);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("Item.json"), StandardCharsets.UTF_8)) {
+            generator.writeItems(writer, entries);
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("ItemChannelLink.json"), StandardCharsets.UTF_8)) {
+            generator.writeChannelLinks(writer, entries);
+        }
+
+        command = new ArrayList<>();
+        if (launcher.equals("jvm")) {
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-jar");
+            command.add(executable("json2config.jar"));
+        } else {
+            command.add(executable("json2config.native"));
+        }
+        command.addAll(List.of("-i", "Item.json", "-c", "--channel-file", "ItemChannelLink.json", "-o", "json.items"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+
+    @Benchmark
+    public int run() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(command + " exited with " + exitCode);
+        }
+        return exitCode;
+    }
+
+
+    private static String executable(String property) {
+        String path = System.getProperty(property);
+        if (path == null || !Files.isRegularFile(Paths.get(path))) {
+            throw new IllegalStateException("Not found: " + property + "=" + path);
+        }
+        return path;
+    }
+}
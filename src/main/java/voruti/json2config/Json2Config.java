@@ -0,0 +1,248 @@
+package voruti.json2config;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.IAppendable;
+import voruti.json2config.model.IConvertible;
+import voruti.json2config.model.json.JsonThing;
+import voruti.json2config.model.items.ItemsFile;
+import voruti.json2config.service.Appender;
+import voruti.json2config.service.Filter;
+import voruti.json2config.service.Grouping;
+import voruti.json2config.service.ItemsParser;
+import voruti.json2config.service.Layout;
+import voruti.json2config.service.SharedService;
+import voruti.json2config.service.Stats;
+import voruti.json2config.service.ThingConverter;
+import voruti.json2config.service.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * A session to use JSON2Config as a library: converts JsonDB content from any {@link Input} in memory, without
+ * touching the file system, and returns or streams the rendered lines.
+ * <p>
+ * A session is immutable and can be shared by any number of threads; its settings only apply to its own calls, unlike
+ * the {@link Filter#activate(Filter) active Filter} of the command line. The Gson adapters and the symbol table for
+ * repeating values like item types, groups and tags are kept for the whole JVM, so the first call warms them up for all
+ * later ones; values unique per entry aren't kept beyond a call (see {@link voruti.json2config.model.Symbols}).
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Json2Config {
+
+    private final Layout layout;
+    private final Filter filter;
+
+
+    /**
+     * Creates a session which groups the items by type and converts all entries.
+     */
+    public Json2Config() {
+        this(Grouping.TYPE, Filter.NONE);
+    }
+
+    /**
+     * @param grouping the {@link Grouping} to arrange the converted items with
+     * @param filter   the {@link Filter} selecting the entries to convert, or {@link Filter#NONE}
+     */
+    public Json2Config(Grouping grouping, Filter filter) {
+        this.layout = new Layout(grouping, false, 1);
+        this.filter = filter;
+    }
+
+
+    /**
+     * Converts the items in {@code items} into the lines of a ".items" file.
+     *
+     * @param items the Item JsonDB
+     * @return the converted lines, sorted and separated by group like in a ".items" file
+     * @throws IOException if the {@code items} can't be read
+     */
+    public List<String> convertItems(Input items) throws IOException {
+        return convertItems(items, null, null);
+    }
+
+    /**
+     * Converts the items in {@code items} into the lines of a ".items" file and directly appends their channel links
+     * and metadata.
+     *
+     * @param items        the Item JsonDB
+     * @param channelLinks the ItemChannelLink JsonDB, or {@code null}
+     * @param metadata     the Metadata JsonDB, or {@code null}
+     * @return the converted lines, sorted and separated by group like in a ".items" file
+     * @throws IOException if one of the inputs can't be read
+     */
+    public List<String> convertItems(Input items, Input channelLinks, Input metadata) throws IOException {
+        List<String> lines = new ArrayList<>();
+        streamItems(items, channelLinks, metadata, lines::add);
+        return layout.arrange(lines);
+    }
+
+    /**
+     * Converts the items in {@code items} and passes every line to the {@code sink} as soon as it is rendered,
+     * unsorted and without empty lines between the groups.
+     *
+     * @param items        the Item JsonDB
+     * @param channelLinks the ItemChannelLink JsonDB, or {@code null}
+     * @param metadata     the Metadata JsonDB, or {@code null}
+     * @param sink         receives the converted lines
+     * @throws IOException if one of the inputs can't be read
+     */
+    public void streamItems(Input items, Input channelLinks, Input metadata, Consumer<String> sink) throws IOException {
+        Map<String, List<IAppendable>> appendablesByItemName = readAppendables(channelLinks, metadata).stream()
+                .collect(Collectors.groupingBy(IAppendable::getItemName));
+
+        StringBuilder buffer = new StringBuilder(256);
+        read(items, Type.ITEM, (key, convertible) -> {
+            try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+                buffer.setLength(0);
+                convertible.appendTo(buffer, key);
+                for (IAppendable appendable : appendablesByItemName.getOrDefault(key, List.of())) {
+                    appendable.appendToLine(buffer);
+                }
+                sink.accept(buffer.toString());
+            }
+        });
+    }
+
+    /**
+     * Converts the things in {@code things} into the lines of a ".things" file, see {@link ThingConverter}.
+     *
+     * @param things the Thing JsonDB
+     * @return the lines of the ".things" file
+     * @throws IOException if the {@code things} can't be read
+     */
+    public List<String> convertThings(Input things) throws IOException {
+        List<JsonThing> thingList = new ArrayList<>();
+        read(things, Type.THING, (key, convertible) -> thingList.add((JsonThing) convertible));
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+            return ThingConverter.arrange(thingList);
+        }
+    }
+
+    /**
+     * Appends the channel links and metadata to the items of an existing ".items" file, keeping its formatting.
+     *
+     * @param itemsFile    the content of the ".items" file
+     * @param channelLinks the ItemChannelLink JsonDB, or {@code null}
+     * @param metadata     the Metadata JsonDB, or {@code null}
+     * @return the new content of the ".items" file
+     * @throws IOException if one of the inputs can't be read
+     */
+    public String appendToItems(Input itemsFile, Input channelLinks, Input metadata) throws IOException {
+        StringWriter content = new StringWriter();
+        try (Reader reader = itemsFile.open()) {
+            reader.transferTo(content);
+        }
+
+        ItemsFile parsed;
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.PARSE)) {
+            parsed = ItemsParser.parse(content.toString());
+        }
+        Map<String, List<IAppendable>> appendablesByItemName = readAppendables(channelLinks, metadata).stream()
+                .collect(Collectors.groupingBy(IAppendable::getItemName));
+        int count = Appender.appendToItems(appendablesByItemName, parsed, itemsFile.toString());
+        log.debug("Appended {} channels/metadata to {}", count, itemsFile);
+        return parsed.toString();
+    }
+
+
+    /**
+     * Reads the channel links and then the metadata, in the order they are appended.
+     */
+    private List<IAppendable> readAppendables(Input channelLinks, Input metadata) throws IOException {
+        List<IAppendable> appendables = new ArrayList<>();
+        if (channelLinks != null) {
+            read(channelLinks, Type.CHANNEL, (key, convertible) -> appendables.add((IAppendable) convertible));
+        }
+        if (metadata != null) {
+            read(metadata, Type.METADATA, (key, convertible) -> appendables.add((IAppendable) convertible));
+        }
+        return appendables;
+    }
+
+    private void read(Input input, Type type, BiConsumer<String, IConvertible> consumer) throws IOException {
+        log.debug("Reading {} from {}", type, input);
+        try (Reader reader = input.open()) {
+            SharedService.streamJson(reader, type, filter, consumer);
+        }
+    }
+
+
+    /**
+     * The content of a JsonDB or ".items" file, opened when a session reads it and closed afterwards.
+     */
+    @FunctionalInterface
+    public interface Input {
+
+        /**
+         * @return a new {@link Reader} of the content
+         * @throws IOException if the content can't be opened
+         */
+        Reader open() throws IOException;
+
+        /**
+         * @param reader the content; it is closed after reading, so it can only be read once
+         * @return an {@link Input} reading the {@code reader}
+         */
+        static Input of(Reader reader) {
+            return named("reader", () -> reader);
+        }
+
+        /**
+         * @param stream the UTF-8 encoded content; it is closed after reading, so it can only be read once
+         * @return an {@link Input} reading the {@code stream}
+         */
+        static Input of(InputStream stream) {
+            return named("stream", () -> new InputStreamReader(stream, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param path the UTF-8 encoded file
+         * @return an {@link Input} reading the file at {@code path}, every time it is opened
+         */
+        static Input of(Path path) {
+            return named(path.toString(), () -> Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @param content the content
+         * @return an {@link Input} reading the {@code content}, every time it is opened
+         */
+        static Input ofString(String content) {
+            return named("string", () -> new StringReader(content));
+        }
+
+        /**
+         * Gives the {@code input} a name for the log.
+         */
+        private static Input named(String name, Input input) {
+            return new Input() {
+                @Override
+                public Reader open() throws IOException {
+                    return input.open();
+                }
+
+                @Override
+                public String toString() {
+                    return name;
+                }
+            };
+        }
+    }
+}
@@ -1,17 +1,40 @@
 package voruti.json2config;
 
+import lombok.extern.slf4j.Slf4j;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import voruti.json2config.model.IAppendable;
+import voruti.json2config.service.Appender;
+import voruti.json2config.service.BackupSource;
+import voruti.json2config.service.Batch;
 import voruti.json2config.service.ChannelAppender;
 import voruti.json2config.service.Constants;
 import voruti.json2config.service.Converter;
+import voruti.json2config.service.Diff;
+import voruti.json2config.service.ExternalSort;
+import voruti.json2config.service.Filter;
+import voruti.json2config.service.Grouping;
+import voruti.json2config.service.Layout;
+import voruti.json2config.service.Manifest;
 import voruti.json2config.service.MetadataAppender;
+import voruti.json2config.service.Stats;
+import voruti.json2config.service.ThingConverter;
 import voruti.json2config.service.Type;
+import voruti.json2config.service.Watcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author voruti
  */
+@Slf4j
 @Command(name = "java -jar json2config.jar", mixinStandardHelpOptions = true, version = "1.8.0", // change me on new release
         description = "Converts openHAB Items from JsonDB Storage files.")
 public class Starter implements Runnable {
@@ -28,6 +51,10 @@ public class Starter implements Runnable {
             description = "enable the metadata appending feature")
     private boolean doMetadata;
 
+    @Option(names = {"--things", "--convert-things"},
+            description = "enable converting the things into a .things file")
+    private boolean doThings;
+
     @Option(names = {"-3", "--openhab3", "--v3", "--openhab-v3", "--openhabv3", "--openhab-3"},
             description = "set default file names used since openHAB version 3.X")
     private boolean defaultV3;
@@ -48,19 +75,100 @@ public class Starter implements Runnable {
             description = "specify the .json file location containing the metadata")
     private String metadataFile;
 
+    @Option(names = {"--thing-file"},
+            defaultValue = Constants.DEFAULT_V2_THING_FILE,
+            description = "specify the .json file location containing the things")
+    private String thingFile;
+
     @Option(names = {"-o", "--out", "--items"},
             defaultValue = "json.items",
             description = "specify the output file")
     private String outFile;
 
+    @Option(names = {"--things-out"},
+            defaultValue = "json.things",
+            description = "specify the output file for the things")
+    private String thingsOutFile;
+
     @Option(names = {"-d", "--dir", "--directory"},
             defaultValue = ".",
             description = "specify the directory in which to search for *.items files")
     private String directory;
 
+    @Option(names = {"-t", "--threads"},
+            description = "specify the number of *.items files (or batch jobs) to process in parallel; default: 1 (the"
+                    + " number of processors in batch mode)")
+    private Integer threads;
+
+    @Option(names = {"--include"}, split = ",", paramLabel = "<glob>",
+            description = "only convert items (and their channel links and metadata) whose name matches one of the"
+                    + " globs, e.g. Light_*")
+    private List<String> includes = new ArrayList<>();
+
+    @Option(names = {"--exclude"}, split = ",", paramLabel = "<glob>",
+            description = "don't convert items (and their channel links and metadata) whose name matches one of the"
+                    + " globs")
+    private List<String> excludes = new ArrayList<>();
+
+    @Option(names = {"--group"}, split = ",",
+            description = "only convert items which are a direct member of one of the groups")
+    private List<String> groups = new ArrayList<>();
+
+    @Option(names = {"--tag"}, split = ",",
+            description = "only convert items which have one of the tags")
+    private List<String> tags = new ArrayList<>();
+
+    @Option(names = {"--item-type"}, split = ",",
+            description = "only convert items of one of the types, e.g. Switch or Number")
+    private List<String> itemTypes = new ArrayList<>();
+
+    @Option(names = {"--binding"}, split = ",",
+            description = "only append channel links and convert things of one of the bindings, e.g. zwave")
+    private List<String> bindings = new ArrayList<>();
+
+    @Option(names = {"-w", "--watch"},
+            description = "keep running and update the output file whenever the JsonDB files change")
+    private boolean watch;
+
+    @Option(names = {"--incremental"},
+            description = "keep a manifest next to the output file and skip everything unchanged since the last run")
+    private boolean incremental;
+
+    @Option(names = {"-g", "--group-by"},
+            defaultValue = "TYPE",
+            description = "group the converted items by their item TYPE or their first GROUP")
+    private Grouping grouping;
+
+    @Option(names = {"--shard"},
+            description = "write every group to its own file, named like the output file with the group as suffix")
+    private boolean shard;
+
+    @Option(names = {"--max-memory"},
+            description = "keep at most about the specified number of MiB of converted lines in memory, sort the rest"
+                    + " in temporary files")
+    private Integer maxMemory;
+
+    @Option(names = {"--stats"},
+            description = "write timings, counts and allocations of all phases as JSON to the specified file")
+    private String statsFile;
+
+    @Option(names = {"--dry-run"},
+            description = "don't write any file, print the planned changes as unified diff instead")
+    private boolean dryRun;
+
+    @Option(names = {"--batch"},
+            description = "convert all openHAB installations listed in the specified JSON file in one run")
+    private String batchFile;
+
+    @Option(names = {"-b", "--backup"},
+            description = "read the JsonDB files from an openHAB backup zip or directory, using the newest snapshots")
+    private String backup;
+
 
     public static void main(String[] args) {
-        new CommandLine(new Starter()).execute(args);
+        new CommandLine(new Starter())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .execute(args);
     }
 
 
@@ -80,21 +188,307 @@ public class Starter implements Runnable {
             if (metadataFile.equals(Constants.DEFAULT_V2_METADATA_FILE)) {
                 metadataFile = Constants.DEFAULT_V3_METADATA_FILE;
             }
+            if (thingFile.equals(Constants.DEFAULT_V2_THING_FILE)) {
+                thingFile = Constants.DEFAULT_V3_THING_FILE;
+            }
+        }
+
+        if (statsFile != null) {
+            Stats.enable();
+        }
+        if (dryRun) {
+            Diff.enableDryRun();
+        }
+        Filter filter = new Filter(includes, excludes, groups, tags, itemTypes, bindings);
+        Filter.activate(filter);
+
+        // many installations at once:
+        if (batchFile != null) {
+            if (watch) {
+                log.warn("Watch mode isn't supported in batch mode");
+            }
+            if (backup != null) {
+                log.warn("Backups aren't supported in batch mode, using the JsonDB directories of the jobs");
+            }
+            runBatch();
+            if (statsFile != null) {
+                Stats.writeReport(statsFile);
+            }
+            return;
+        }
+        if (threads == null) {
+            threads = 1;
         }
 
-        // start Converter:
+        // read the newest snapshots from a backup:
+        if (backup != null) {
+            if (watch) {
+                log.warn("Watch mode isn't supported with a backup");
+            }
+            try (BackupSource source = BackupSource.open(backup)) {
+                useBackup(source);
+                convert();
+            } catch (IOException e) {
+                log.error("Can't read backup {}: {}", backup, e.toString());
+            }
+            if (statsFile != null) {
+                Stats.writeReport(statsFile);
+            }
+            return;
+        }
+
+        // keep the output in sync:
+        if (watch && noConverter) {
+            log.warn("Watch mode only updates the converted output, which is disabled with -n; running once");
+        }
+        if (watch && !noConverter) {
+            if (shard || grouping != Grouping.TYPE) {
+                log.warn("The output is always grouped by type into a single file in watch mode");
+            }
+            if (doThings) {
+                log.warn("Things aren't converted in watch mode");
+            }
+            if (maxMemory != null) {
+                log.warn("All converted lines are kept in memory in watch mode");
+            }
+            if (!filter.isEmpty()) {
+                log.warn("Filters aren't applied in watch mode");
+            }
+            try {
+                new Watcher(jsonFile, doChannelLinks ? channelFile : null, doMetadata ? metadataFile : null, outFile).watch();
+            } catch (IOException e) {
+                log.error("Can't watch JsonDB files: {}", e.toString());
+            }
+            return;
+        }
+
+        convert();
+
+        if (statsFile != null) {
+            Stats.writeReport(statsFile);
+        }
+    }
+
+    /**
+     * Runs the enabled features once.
+     */
+    private void convert() {
+        // remember what was done, to skip unchanged work next time:
+        Manifest manifest = incremental ? Manifest.load(outFile) : null;
+        Layout layout = new Layout(grouping, shard, threads,
+                maxMemory == null ? ExternalSort.UNLIMITED : maxMemory * 1024L * 1024L);
+
+        Set<String> itemNames = acceptedItemNames();
+
+        if (!noConverter && (doChannelLinks || doMetadata) && isInDirectory(outFile)) {
+            // convert and append in one go, if the output is one of the files the appenders would modify anyway:
+            runFused(manifest, layout, itemNames);
+        } else {
+            // start Converter:
+            if (!noConverter) {
+                Converter.start(jsonFile, outFile, Type.ITEM, List.of(), manifest, layout);
+            }
+
+            // start ChannelAppender:
+            if (doChannelLinks) {
+                ChannelAppender.start(channelFile, directory, threads, manifest, itemNames);
+            }
+
+            // start MetadataAppender:
+            if (doMetadata) {
+                MetadataAppender.start(metadataFile, directory, threads, manifest, itemNames);
+            }
+        }
+
+        // start ThingConverter:
+        if (doThings) {
+            ThingConverter.start(thingFile, thingsOutFile, manifest);
+        }
+
+        if (manifest != null) {
+            manifest.save();
+        }
+    }
+
+    /**
+     * Runs {@link #convert()} for every job of the batch file on a bounded number of threads and logs a summary.
+     */
+    private void runBatch() {
+        List<Batch.Job> jobs;
+        try {
+            jobs = Batch.load(batchFile);
+        } catch (IOException e) {
+            log.error("Can't read batch file: {}", e.getMessage());
+            return;
+        }
+
+        int jobThreads = threads == null ? Runtime.getRuntime().availableProcessors() : threads;
+        log.info("Running {} jobs on up to {} threads", jobs.size(), jobThreads);
+        Batch.logSummary(Batch.run(jobs, jobThreads, job -> forJob(job).convert()));
+    }
+
+    /**
+     * Creates a copy of this {@link Starter} with the files of the {@code job}. The ".items" files of a job are
+     * processed on a single thread, as the jobs themselves run in parallel.
+     *
+     * @param job the {@link Batch.Job} to run
+     * @return the {@link Starter} for the {@code job}
+     */
+    private Starter forJob(Batch.Job job) {
+        Starter starter = new Starter();
+        starter.noConverter = noConverter;
+        starter.doChannelLinks = doChannelLinks;
+        starter.doMetadata = doMetadata;
+        starter.doThings = doThings;
+        starter.jsonFile = job.jsonDbFile(Constants.DEFAULT_V2_JSON_FILE, Constants.DEFAULT_V3_JSON_FILE);
+        starter.channelFile = job.jsonDbFile(Constants.DEFAULT_V2_CHANNEL_FILE, Constants.DEFAULT_V3_CHANNEL_FILE);
+        starter.metadataFile = job.jsonDbFile(Constants.DEFAULT_V2_METADATA_FILE, Constants.DEFAULT_V3_METADATA_FILE);
+        starter.thingFile = job.jsonDbFile(Constants.DEFAULT_V2_THING_FILE, Constants.DEFAULT_V3_THING_FILE);
+        starter.outFile = job.getOutput();
+        starter.thingsOutFile = job.getOutput().replaceFirst("(\\.items)?$", ".things");
+        starter.directory = job.getDirectory();
+        starter.threads = 1;
+        starter.incremental = incremental;
+        starter.grouping = grouping;
+        starter.shard = shard;
+        starter.maxMemory = maxMemory;
+
+        // fail the job instead of logging errors for missing input:
         if (!noConverter) {
-            Converter.start(jsonFile, outFile, Type.ITEM);
+            requireFile(starter.jsonFile);
+        }
+        if (doChannelLinks) {
+            requireFile(starter.channelFile);
         }
+        if (doMetadata) {
+            requireFile(starter.metadataFile);
+        }
+        if (doThings) {
+            requireFile(starter.thingFile);
+        }
+        if (!Files.isDirectory(Paths.get(starter.directory))) {
+            throw new IllegalStateException("Not a directory: " + starter.directory);
+        }
+        return starter;
+    }
 
-        // start ChannelAppender:
+    /**
+     * Replaces the JsonDB files of the enabled features with their newest snapshots in the {@code source}. Files that
+     * were specified explicitly are kept.
+     *
+     * @param source the opened {@link BackupSource}
+     */
+    private void useBackup(BackupSource source) {
+        if (!noConverter) {
+            jsonFile = fromBackup(source, jsonFile, Constants.DEFAULT_V2_JSON_FILE, Constants.DEFAULT_V3_JSON_FILE);
+        }
         if (doChannelLinks) {
-            ChannelAppender.start(channelFile, directory);
+            channelFile = fromBackup(source, channelFile,
+                    Constants.DEFAULT_V2_CHANNEL_FILE, Constants.DEFAULT_V3_CHANNEL_FILE);
+        }
+        if (doMetadata) {
+            metadataFile = fromBackup(source, metadataFile,
+                    Constants.DEFAULT_V2_METADATA_FILE, Constants.DEFAULT_V3_METADATA_FILE);
+        }
+        if (doThings) {
+            thingFile = fromBackup(source, thingFile, Constants.DEFAULT_V2_THING_FILE, Constants.DEFAULT_V3_THING_FILE);
+        }
+    }
+
+    private static String fromBackup(BackupSource source, String file, String v2FileName, String v3FileName) {
+        if (!file.equals(v2FileName) && !file.equals(v3FileName)) {
+            return file;
+        }
+        String snapshot = source.resolve(v2FileName, v3FileName);
+        if (snapshot == null) {
+            log.warn("The backup contains no {}", file);
+            return file;
         }
+        return snapshot;
+    }
 
-        // start MetadataAppender:
+    /**
+     * Reads the names of the items whose channel links and metadata are appended, if the filters select items by
+     * group, tag or type: these are only known from the items themselves.
+     *
+     * @return the names of the accepted items, or {@code null} if all channel links and metadata are appended
+     */
+    private Set<String> acceptedItemNames() {
+        Filter filter = Filter.active();
+        if (!filter.hasContentCriteria() || !(doChannelLinks || doMetadata)) {
+            return null;
+        }
+        try {
+            return filter.acceptedItemNames(jsonFile);
+        } catch (IOException e) {
+            log.error("Can't open file {} to select the items for the channel links and metadata", jsonFile);
+            return Set.of();
+        }
+    }
+
+    /**
+     * Joins items, channel links and metadata in memory and writes the converted file only once. The remaining
+     * ".items" files in the directory are then appended to in a single pass.
+     *
+     * @param manifest  the {@link Manifest} of the last run, or {@code null} to process everything
+     * @param layout    the {@link Layout} to arrange the converted items with
+     * @param itemNames the names of the items to append to, or {@code null} for all items
+     */
+    private void runFused(Manifest manifest, Layout layout, Set<String> itemNames) {
+        boolean appendablesUnchanged = manifest != null
+                && (!doChannelLinks || manifest.isUnchanged(channelFile))
+                && (!doMetadata || manifest.isUnchanged(metadataFile));
+        if (appendablesUnchanged && Filter.active().isEmpty() && manifest.isUnchanged(jsonFile)
+                && Appender.findItemsFilesInDir(directory).stream().allMatch(manifest::isUnchanged)) {
+            log.info("All files are unchanged since the last run, skipping");
+            return;
+        }
+
+        List<IAppendable> appendableList = new ArrayList<>();
+        if (doChannelLinks) {
+            try {
+                appendableList.addAll(ChannelAppender.readChannelLinks(channelFile));
+            } catch (IOException e) {
+                log.error(Constants.LOG_CANT_OPEN_FILE, channelFile);
+            }
+        }
         if (doMetadata) {
-            MetadataAppender.start(metadataFile, directory);
+            try {
+                appendableList.addAll(MetadataAppender.readMetadata(metadataFile));
+            } catch (IOException e) {
+                log.error(Constants.LOG_CANT_OPEN_FILE, metadataFile);
+            }
+        }
+
+        appendableList = Appender.onlyItems(appendableList, itemNames);
+        List<String> outFiles = Converter.start(jsonFile, outFile, Type.ITEM, appendableList, manifest, layout);
+        Appender.searchAndAppend(directory, appendableList, outFiles, threads, manifest, appendablesUnchanged);
+
+        if (manifest != null) {
+            if (doChannelLinks) {
+                manifest.recordFile(channelFile);
+            }
+            if (doMetadata) {
+                manifest.recordFile(metadataFile);
+            }
         }
     }
+
+    private static void requireFile(String file) {
+        if (!Files.isRegularFile(Paths.get(file))) {
+            throw new IllegalStateException("Missing file: " + file);
+        }
+    }
+
+    /**
+     * Checks if the {@code file} is one of the ".items" files found in the directory.
+     *
+     * @param file the file to check
+     * @return {@code true} if the appenders would search the {@code file}, {@code false} otherwise
+     */
+    private boolean isInDirectory(String file) {
+        return file.endsWith(".items")
+                && Objects.equals(Paths.get(file).toAbsolutePath().normalize().getParent(),
+                Paths.get(directory).toAbsolutePath().normalize());
+    }
 }
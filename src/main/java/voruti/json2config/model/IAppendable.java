@@ -1,5 +1,7 @@
 package voruti.json2config.model;
 
+import voruti.json2config.model.items.Binding;
+
 /**
  * @author sbholmes
  */
@@ -11,4 +13,38 @@ public interface IAppendable extends IConvertible {
      * @return the name of the item
      */
     String getItemName();
+
+    /**
+     * Converts the channel or metadata to the entry that goes inside the curly brackets of its item.
+     *
+     * @return the {@link Binding} to add to the item
+     */
+    Binding toBinding();
+
+    /**
+     * Appends the entry of {@link #toBinding()} to {@code out}, e.g. {@code channel="mqtt:topic:a:b"}.
+     *
+     * @param out the buffer to append the entry to
+     */
+    default void appendBinding(StringBuilder out) {
+        toBinding().appendTo(out);
+    }
+
+    /**
+     * Appends the channel or metadata to the converted item {@code line} in place, like {@link #toConfigLine(String)}:
+     * into its curly brackets, or in new ones if it has none yet.
+     *
+     * @param line the buffer containing the converted line
+     */
+    default void appendToLine(StringBuilder line) {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '}') {
+            line.setLength(length - 1);
+            line.append(", ");
+        } else {
+            line.append(length > 0 ? " {" : "{");
+        }
+        appendBinding(line);
+        line.append('}');
+    }
 }
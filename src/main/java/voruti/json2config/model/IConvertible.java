@@ -12,4 +12,15 @@ public interface IConvertible {
      * @return a String representating a config file line
      */
     String toConfigLine(String additional);
+
+    /**
+     * Appends the config file line of {@link #toConfigLine(String)} to {@code out}, so a caller converting many objects
+     * can reuse a single buffer instead of creating intermediate {@link String Strings}.
+     *
+     * @param out        the buffer to append the line to
+     * @param additional additional information needed for the config line
+     */
+    default void appendTo(StringBuilder out, String additional) {
+        out.append(toConfigLine(additional));
+    }
 }
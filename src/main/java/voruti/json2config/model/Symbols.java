@@ -0,0 +1,55 @@
+package voruti.json2config.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A symbol table shared by all JsonDB models. Values like item types, categories, group names, tags, binding and thing
+ * ids or metadata namespaces repeat thousands of times in a large JsonDB; interning them keeps a single {@link String}
+ * per distinct value instead of one per occurrence.
+ * <p>
+ * The table only grows, for the life of the JVM. So only values of such small vocabularies may be interned; values
+ * which are unique per entry, like item names, metadata values or channel link properties, must not be, or the table
+ * would grow with every changed entry in watch mode and with every call of a long-lived library session.
+ *
+ * @author voruti
+ */
+public final class Symbols {
+
+    /**
+     * The shared empty array, for lists without elements.
+     */
+    public static final String[] EMPTY = new String[0];
+
+    private static final ConcurrentMap<String, String> TABLE = new ConcurrentHashMap<>();
+
+
+    private Symbols() {
+    }
+
+
+    /**
+     * Returns the canonical instance of {@code value}.
+     *
+     * @param value the value to intern, may be {@code null}
+     * @return the {@link String} equal to {@code value} from the table, or {@code null} if {@code value} is {@code null}
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        // most values are already known, so look them up without locking first:
+        String symbol = TABLE.get(value);
+        if (symbol == null) {
+            symbol = TABLE.putIfAbsent(value, value);
+        }
+        return symbol == null ? value : symbol;
+    }
+
+    /**
+     * @return the number of distinct symbols in the table
+     */
+    public static int size() {
+        return TABLE.size();
+    }
+}
@@ -0,0 +1,59 @@
+package voruti.json2config.model.items;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * A binding or metadata entry inside the curly brackets of an item, e.g. {@code channel="mqtt:topic:a:b"[profile="x"]}
+ * or {@code ga="Light"}.
+ *
+ * @author voruti
+ */
+@Getter
+public class Binding {
+
+    private final String key;
+    private final String value;
+    private final String config;
+
+
+    /**
+     * @param key    the key, e.g. {@code channel} or a metadata namespace
+     * @param value  the value without quotes
+     * @param config the configuration including the square brackets, or an empty {@link String}
+     */
+    public Binding(String key, String value, String config) {
+        this.key = key;
+        this.value = value;
+        this.config = config == null ? "" : config;
+    }
+
+
+    /**
+     * Checks if this and the {@code other} binding can't both be present on an item: channel links are duplicates if
+     * they link the same channel, metadata if they use the same namespace.
+     *
+     * @param other the other {@link Binding}
+     * @return {@code true} if the bindings conflict, {@code false} otherwise
+     */
+    public boolean conflictsWith(Binding other) {
+        return key.equals(other.key) && (!key.equals("channel") || Objects.equals(value, other.value));
+    }
+
+    /**
+     * Appends the entry like {@link #toString()} to {@code out}.
+     *
+     * @param out the buffer to append the entry to
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(key).append("=\"").append(value).append('"').append(config);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        appendTo(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package voruti.json2config.model.items;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An item parsed from a ".items" file. Besides its parts, it keeps the original source text, so it serializes back
+ * unchanged except for the bindings that were added.
+ *
+ * @author voruti
+ */
+@Getter
+public class ItemDefinition {
+
+    private final String type;
+    private final String name;
+    private final String label;
+    private final String icon;
+    private final List<String> groups;
+    private final List<String> tags;
+    private final List<Binding> bindings;
+
+    private final String text;
+    private final int bindingsOpen;
+    private final int bindingsClose;
+    private final List<Binding> addedBindings = new ArrayList<>();
+
+
+    /**
+     * @param type          the item type, e.g. {@code Switch} or {@code Group:Switch:OR(ON,OFF)}
+     * @param name          the item name
+     * @param label         the label without quotes, or {@code null}
+     * @param icon          the icon without angle brackets, or {@code null}
+     * @param groups        the group names
+     * @param tags          the tags without quotes
+     * @param bindings      the bindings and metadata inside the curly brackets
+     * @param text          the original source text of the item
+     * @param bindingsOpen  the index of the opening curly bracket in {@code text}, or {@code -1}
+     * @param bindingsClose the index of the closing curly bracket in {@code text}, or {@code -1}
+     */
+    public ItemDefinition(String type, String name, String label, String icon, List<String> groups, List<String> tags,
+                          List<Binding> bindings, String text, int bindingsOpen, int bindingsClose) {
+        this.type = type;
+        this.name = name;
+        this.label = label;
+        this.icon = icon;
+        this.groups = groups;
+        this.tags = tags;
+        this.bindings = bindings;
+        this.text = text;
+        this.bindingsOpen = bindingsOpen;
+        this.bindingsClose = bindingsClose;
+    }
+
+
+    /**
+     * Adds the {@code binding} to the item, unless an existing or already added binding conflicts with it.
+     *
+     * @param binding the {@link Binding} to add
+     * @return {@code true} if the binding was added, {@code false} if it is a duplicate
+     */
+    public boolean addBinding(Binding binding) {
+        boolean duplicate = bindings.stream().anyMatch(binding::conflictsWith)
+                || addedBindings.stream().anyMatch(binding::conflictsWith);
+        if (!duplicate) {
+            addedBindings.add(binding);
+        }
+        return !duplicate;
+    }
+
+    /**
+     * @return {@code true} if bindings were added since parsing, {@code false} otherwise
+     */
+    public boolean isModified() {
+        return !addedBindings.isEmpty();
+    }
+
+    /**
+     * Serializes the item with its original formatting, inserting the added bindings.
+     *
+     * @return the source text of the item
+     */
+    @Override
+    public String toString() {
+        if (addedBindings.isEmpty()) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length() + 64 * addedBindings.size());
+        appendTo(out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the item like {@link #toString()} to {@code out}.
+     *
+     * @param out the buffer to append the source text to
+     */
+    public void appendTo(StringBuilder out) {
+        if (addedBindings.isEmpty()) {
+            out.append(text);
+            return;
+        }
+        if (bindingsClose < 0) {
+            out.append(text).append(" {");
+            appendAddedBindings(out);
+            out.append('}');
+            return;
+        }
+
+        // insert before the closing bracket, keeping whitespace in front of it:
+        int insertAt = bindingsClose;
+        while (insertAt > bindingsOpen + 1 && Character.isWhitespace(text.charAt(insertAt - 1))) {
+            insertAt--;
+        }
+        out.append(text, 0, insertAt);
+        if (insertAt != bindingsOpen + 1) {
+            out.append(", ");
+        }
+        appendAddedBindings(out);
+        out.append(text, insertAt, text.length());
+    }
+
+
+    private void appendAddedBindings(StringBuilder out) {
+        for (int i = 0; i < addedBindings.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            addedBindings.get(i).appendTo(out);
+        }
+    }
+}
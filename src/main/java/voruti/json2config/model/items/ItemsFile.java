@@ -0,0 +1,80 @@
+package voruti.json2config.model.items;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The content of a ".items" file: the parsed items and everything in between (comments, empty lines, unparsable
+ * text), kept verbatim.
+ *
+ * @author voruti
+ */
+public class ItemsFile {
+
+    private final List<Object> segments;
+
+
+    /**
+     * @param segments the content in order; either {@link ItemDefinition ItemDefinitions} or verbatim
+     *                 {@link String Strings}
+     */
+    public ItemsFile(List<Object> segments) {
+        this.segments = segments;
+    }
+
+
+    /**
+     * @return all items in order of their appearance
+     */
+    public List<ItemDefinition> getItems() {
+        return segments.stream()
+                .filter(ItemDefinition.class::isInstance)
+                .map(ItemDefinition.class::cast)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return {@code true} if bindings were added to any item, {@code false} otherwise
+     */
+    public boolean isModified() {
+        return getItems().stream().anyMatch(ItemDefinition::isModified);
+    }
+
+    /**
+     * Writes the file with its original formatting to {@code out}, segment by segment.
+     *
+     * @param out the {@link Appendable} to write to
+     * @throws IOException if the {@code out} can't be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        StringBuilder item = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof ItemDefinition) {
+                item.setLength(0);
+                ((ItemDefinition) segment).appendTo(item);
+                out.append(item);
+            } else {
+                out.append(segment.toString());
+            }
+        }
+    }
+
+    /**
+     * Serializes the file with its original formatting.
+     *
+     * @return the content of the file
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof ItemDefinition) {
+                ((ItemDefinition) segment).appendTo(builder);
+            } else {
+                builder.append(segment);
+            }
+        }
+        return builder.toString();
+    }
+}
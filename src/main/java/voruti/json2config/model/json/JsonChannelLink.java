@@ -1,65 +1,180 @@
 package voruti.json2config.model.json;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.Getter;
 import voruti.json2config.model.IAppendable;
+import voruti.json2config.model.Symbols;
+import voruti.json2config.model.items.Binding;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Getter
+@JsonAdapter(JsonChannelLink.Adapter.class)
 public class JsonChannelLink implements IAppendable {
 
-    private static final Gson GSON = new Gson();
-    private Value value;
+    private final String thingUID;
+    private final String channelId;
+    private final Map<String, String> properties;
+    private final String itemName;
+
+
+    JsonChannelLink(String thingUID, String channelId, Map<String, String> properties, String itemName) {
+        this.thingUID = thingUID;
+        this.channelId = channelId;
+        this.properties = properties;
+        this.itemName = itemName;
+    }
+
+
+    /**
+     * @return the UID of the linked channel, e.g. {@code mqtt:topic:broker:switch}, or {@code null} if it is missing
+     */
+    public String getChannelUID() {
+        if (thingUID == null) {
+            return channelId;
+        }
+        return channelId == null ? thingUID : thingUID + ":" + channelId;
+    }
 
 
     @Override
     public String toConfigLine(String lineBefore) {
-        // first channel or append:
-        String format = "channel=\"%s\"%s}";
-        if (lineBefore.endsWith("}")) {
-            lineBefore = lineBefore.substring(0, lineBefore.length() - 1);
-            format = "%s, " + format;
+        StringBuilder line = new StringBuilder(lineBefore);
+        appendToLine(line);
+        return line.toString().strip();
+    }
+
+    @Override
+    public Binding toBinding() {
+        StringBuilder config = new StringBuilder();
+        appendConfig(config);
+        return new Binding("channel", getChannelUID(), config.toString());
+    }
+
+    @Override
+    public void appendBinding(StringBuilder out) {
+        out.append("channel=\"");
+        if (thingUID != null && channelId != null) {
+            out.append(thingUID).append(':').append(channelId);
         } else {
-            format = "%s {" + format;
+            out.append(thingUID != null ? thingUID : channelId);
         }
+        out.append('"');
+        appendConfig(out);
+    }
 
-        // profile:
-        String propertiesString = "";
-        if (value.configuration.properties != null) {
-            String profile = value.configuration.properties.get("profile");
-            if (profile != null && !profile.equals("system:default")) {
-                propertiesString = String.format("[%s]",
-                        value.configuration.properties.entrySet().stream()
-                                .map(propertiesEntry -> String.format("%s=%s", propertiesEntry.getKey(), GSON.toJson(propertiesEntry.getValue())))
-                                .collect(Collectors.joining(", "))
-                );
+
+    /**
+     * Appends the properties like {@code [profile="transform:MAP", function="de.map"]}, if a profile other than the
+     * default one is set.
+     */
+    private void appendConfig(StringBuilder out) {
+        if (properties == null) {
+            return;
+        }
+        String profile = properties.get("profile");
+        if (profile == null || profile.equals("system:default")) {
+            return;
+        }
+        out.append('[');
+        boolean first = true;
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (!first) {
+                out.append(", ");
             }
+            first = false;
+            out.append(property.getKey()).append('=');
+            JsonReaders.appendJsonString(out, property.getValue());
         }
-
-        return String.format(format, lineBefore, String.join(":", value.channelUID.segments), propertiesString).strip();
+        out.append(']');
     }
 
-    @Override
-    public String getItemName() {
-        return value.itemName;
-    }
 
-    @Getter
-    public static class Value {
-        private ChannelUID channelUID;
-        private Configuration configuration;
-        private String itemName;
+    /**
+     * Reads an entry of the ItemChannelLink JsonDB straight into a {@link JsonChannelLink}. The segments of the channel
+     * UID are stored as interned thing UID, shared by all links to the same thing, and channel id.
+     */
+    static class Adapter extends TypeAdapter<JsonChannelLink> {
 
+        @Override
+        public JsonChannelLink read(JsonReader in) throws IOException {
+            String thingUID = null;
+            String channelId = null;
+            Map<String, String> properties = null;
+            String itemName = null;
 
-        private static class ChannelUID {
-            private List<String> segments;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("value")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "channelUID":
+                            List<String> segments = JsonReaders.nextSegments(in);
+                            if (segments != null && !segments.isEmpty()) {
+                                thingUID = segments.size() == 1 ? null
+                                        : Symbols.intern(String.join(":", segments.subList(0, segments.size() - 1)));
+                                channelId = Symbols.intern(segments.get(segments.size() - 1));
+                            }
+                            break;
+                        case "configuration":
+                            properties = readProperties(in);
+                            break;
+                        case "itemName":
+                            itemName = JsonReaders.nextString(in);
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+            }
+            in.endObject();
+
+            return new JsonChannelLink(thingUID, channelId, properties, itemName);
+        }
+
+        @Override
+        public void write(JsonWriter out, JsonChannelLink link) throws IOException {
+            out.beginObject();
+            out.name("value").beginObject();
+            String channelUID = link.getChannelUID();
+            JsonReaders.writeSegments(out, "channelUID", channelUID == null ? null : List.of(channelUID.split(":", -1)));
+            out.name("configuration").beginObject();
+            if (link.properties != null) {
+                out.name("properties").beginObject();
+                for (Map.Entry<String, String> property : link.properties.entrySet()) {
+                    out.name(property.getKey()).value(property.getValue());
+                }
+                out.endObject();
+            }
+            out.endObject();
+            out.name("itemName").value(link.itemName);
+            out.endObject();
+            out.endObject();
         }
 
-        private static class Configuration {
-            private Map<String, String> properties;
+
+        private static Map<String, String> readProperties(JsonReader in) throws IOException {
+            Map<String, String> properties = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("properties")) {
+                    properties = JsonReaders.nextStringMap(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return properties;
         }
     }
 }
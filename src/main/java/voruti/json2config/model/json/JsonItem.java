@@ -1,72 +1,236 @@
 package voruti.json2config.model.json;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import voruti.json2config.model.IConvertible;
+import voruti.json2config.model.Symbols;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.StringJoiner;
 
+@JsonAdapter(JsonItem.Adapter.class)
 public class JsonItem implements IConvertible {
 
-    private Value value;
+    private final String baseItemType;
+    private final String[] groupNames;
+    private final String itemType;
+    private final String[] tags;
+    private final String label;
+    private final String category;
+    private final String functionName;
+    private final String[] functionParams;
+    private final String dimension;
 
 
+    @SuppressWarnings("java:S107")
+    JsonItem(String baseItemType, String[] groupNames, String itemType, String[] tags, String label,
+             String category, String functionName, String[] functionParams, String dimension) {
+        this.baseItemType = baseItemType;
+        this.groupNames = groupNames;
+        this.itemType = itemType;
+        this.tags = tags;
+        this.label = label;
+        this.category = category;
+        this.functionName = functionName;
+        this.functionParams = functionParams;
+        this.dimension = dimension;
+    }
+
+
+    /**
+     * @return the type of the item, e.g. {@code Number:Temperature}
+     */
+    public String getItemType() {
+        return itemType;
+    }
+
+    /**
+     * @return the groups the item is a direct member of
+     */
+    public List<String> getGroupNames() {
+        return groupNames == null ? List.of() : Collections.unmodifiableList(Arrays.asList(groupNames));
+    }
+
+    /**
+     * @return the tags of the item
+     */
+    public List<String> getTags() {
+        return tags == null ? List.of() : Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
     @Override
     public String toConfigLine(String name) {
-        String baseItemTypeString = value.baseItemType == null || value.baseItemType.isEmpty()
-                ? ""
-                : ":" + value.baseItemType;
-        String functionNameString = value.functionName == null || value.functionName.isEmpty()
-                ? ""
-                : ":" + value.functionName;
-        String functionParamsString = value.functionParams == null || value.functionParams.isEmpty()
-                ? ""
-                : String.format("(%s)", String.join(",", value.functionParams));
-        String beginString = value.itemType == null ? "" : value.itemType;
-        if (value.itemType != null) {
-            if (value.itemType.equalsIgnoreCase("Group")) {
-                beginString += baseItemTypeString + functionNameString + functionParamsString;
-            } else if (value.dimension != null && !value.itemType.contains(":")) {
-                beginString += value.dimension;
+        StringBuilder out = new StringBuilder(128);
+        appendTo(out, name);
+        return out.toString();
+    }
+
+    /**
+     * Appends the line like {@code Type Name "Label" <category> (Groups) ["Tags"]} to {@code out}. Like in the
+     * ".items" syntax, the parts are separated by spaces, also where an optional part is missing.
+     */
+    @Override
+    public void appendTo(StringBuilder out, String name) {
+        int start = out.length();
+        if (itemType != null) {
+            out.append(itemType);
+            if (itemType.equalsIgnoreCase("Group")) {
+                if (baseItemType != null && !baseItemType.isEmpty()) {
+                    out.append(':').append(baseItemType);
+                }
+                if (functionName != null && !functionName.isEmpty()) {
+                    out.append(':').append(functionName);
+                }
+                if (functionParams != null && functionParams.length > 0) {
+                    out.append('(');
+                    appendJoined(out, functionParams, ",", "");
+                    out.append(')');
+                }
+            } else if (dimension != null && !itemType.contains(":")) {
+                out.append(dimension);
+            }
+        }
+        out.append(' ').append(name).append(' ');
+        if (label != null && !label.isEmpty()) {
+            out.append('"').append(label).append('"');
+        }
+        out.append(' ');
+        if (category != null && !category.isEmpty()) {
+            out.append('<').append(category.toLowerCase()).append('>');
+        }
+        out.append(' ');
+        if (groupNames != null && groupNames.length > 0) {
+            out.append('(');
+            appendJoined(out, groupNames, ", ", "");
+            out.append(')');
+        }
+        out.append(' ');
+        if (tags != null && tags.length > 0) {
+            out.append('[');
+            appendJoined(out, tags, ", ", "\"");
+            out.append(']');
+        }
+        strip(out, start);
+    }
+
+
+    private static void appendJoined(StringBuilder out, String[] values, String separator, String quote) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(separator);
             }
+            out.append(quote).append(values[i]).append(quote);
         }
+    }
 
-        String labelString = value.label == null || value.label.isEmpty()
-                ? ""
-                : String.format("\"%s\"", value.label);
-
-        String categoryString = value.category == null || value.category.isEmpty()
-                ? ""
-                : String.format("<%s>", value.category.toLowerCase());
-
-        String groupNamesString = value.groupNames == null || value.groupNames.isEmpty()
-                ? ""
-                : String.format("(%s)", String.join(", ", value.groupNames));
-
-        String tagsString = value.tags == null || value.tags.isEmpty()
-                ? ""
-                : String.format("[\"%s\"]", String.join("\", \"", value.tags));
-
-        return new StringJoiner(" ")
-                .add(beginString)
-                .add(name)
-                .add(labelString)
-                .add(categoryString)
-                .add(groupNamesString)
-                .add(tagsString)
-                .toString().strip();
+    /**
+     * Removes the whitespace around the line starting at {@code start}, like {@link String#strip()}.
+     */
+    private static void strip(StringBuilder out, int start) {
+        int end = out.length();
+        while (end > start && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+        out.setLength(end);
+        int first = start;
+        while (first < end && Character.isWhitespace(out.charAt(first))) {
+            first++;
+        }
+        if (first > start) {
+            out.delete(start, first);
+        }
     }
 
 
-    private static class Value {
-        private String baseItemType;
-        private List<String> groupNames;
-        private String itemType;
-        private Set<String> tags;
-        private String label;
-        private String category;
-        private String functionName;
-        private List<String> functionParams;
-        private String dimension;
+    /**
+     * Reads an entry of the Item JsonDB straight into a {@link JsonItem}, without reflection.
+     */
+    static class Adapter extends TypeAdapter<JsonItem> {
+
+        @Override
+        public JsonItem read(JsonReader in) throws IOException {
+            String baseItemType = null;
+            String[] groupNames = null;
+            String itemType = null;
+            String[] tags = null;
+            String label = null;
+            String category = null;
+            String functionName = null;
+            String[] functionParams = null;
+            String dimension = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("value")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "baseItemType":
+                            baseItemType = JsonReaders.nextSymbol(in);
+                            break;
+                        case "groupNames":
+                            groupNames = JsonReaders.nextSymbols(in);
+                            break;
+                        case "itemType":
+                            itemType = JsonReaders.nextSymbol(in);
+                            break;
+                        case "tags":
+                            tags = JsonReaders.nextSymbols(in);
+                            // tags are a set in openHAB:
+                            if (tags != null && tags.length > 1) {
+                                tags = new LinkedHashSet<>(Arrays.asList(tags)).toArray(Symbols.EMPTY);
+                            }
+                            break;
+                        case "label":
+                            label = JsonReaders.nextString(in);
+                            break;
+                        case "category":
+                            category = JsonReaders.nextSymbol(in);
+                            break;
+                        case "functionName":
+                            functionName = JsonReaders.nextSymbol(in);
+                            break;
+                        case "functionParams":
+                            functionParams = JsonReaders.nextStrings(in);
+                            break;
+                        case "dimension":
+                            dimension = JsonReaders.nextSymbol(in);
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+            }
+            in.endObject();
+
+            return new JsonItem(baseItemType, groupNames, itemType, tags, label, category, functionName,
+                    functionParams, dimension);
+        }
+
+        @Override
+        public void write(JsonWriter out, JsonItem item) throws IOException {
+            out.beginObject();
+            out.name("value").beginObject();
+            out.name("baseItemType").value(item.baseItemType);
+            JsonReaders.writeStringArray(out, "groupNames", item.groupNames);
+            out.name("itemType").value(item.itemType);
+            JsonReaders.writeStringArray(out, "tags", item.tags);
+            out.name("label").value(item.label);
+            out.name("category").value(item.category);
+            out.name("functionName").value(item.functionName);
+            JsonReaders.writeStringArray(out, "functionParams", item.functionParams);
+            out.name("dimension").value(item.dimension);
+            out.endObject();
+            out.endObject();
+        }
     }
 }
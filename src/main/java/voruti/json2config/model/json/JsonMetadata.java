@@ -1,42 +1,100 @@
 package voruti.json2config.model.json;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import lombok.Getter;
 import voruti.json2config.model.IAppendable;
+import voruti.json2config.model.Symbols;
+import voruti.json2config.model.items.Binding;
 
+import java.io.IOException;
 import java.util.List;
 
 @Getter
+@JsonAdapter(JsonMetadata.Adapter.class)
 public class JsonMetadata implements IAppendable {
 
-    private Value value;
+    private final String namespace;
+    private final String itemName;
+    private final String value;
+
+
+    JsonMetadata(String namespace, String itemName, String value) {
+        this.namespace = namespace;
+        this.itemName = itemName;
+        this.value = value;
+    }
 
 
     @Override
     public String toConfigLine(String lineBefore) {
-        // first metadata or append:
-        String format = "%s=\"%s\"}";
-        if (lineBefore.endsWith("}")) {
-            lineBefore = lineBefore.substring(0, lineBefore.length() - 1);
-            format = "%s, " + format;
-        } else {
-            format = "%s {" + format;
-        }
-        return String.format(format, lineBefore, value.key.segments.get(0), value.value).strip();
+        StringBuilder line = new StringBuilder(lineBefore);
+        appendToLine(line);
+        return line.toString().strip();
     }
 
     @Override
-    public String getItemName() {
-        return value.key.segments.get(1);
+    public Binding toBinding() {
+        return new Binding(namespace, value, "");
     }
 
+    @Override
+    public void appendBinding(StringBuilder out) {
+        out.append(namespace).append("=\"").append(value).append('"');
+    }
 
-    @Getter
-    public static class Value {
-        private Key key;
-        private String value;
 
-        private static class Key {
-            private List<String> segments;
+    /**
+     * Reads an entry of the Metadata JsonDB straight into a {@link JsonMetadata}, splitting its key into namespace and
+     * item name while reading. Only the namespace is interned: it repeats across entries, while the item name and the
+     * value may be unique per entry.
+     */
+    static class Adapter extends TypeAdapter<JsonMetadata> {
+
+        @Override
+        public JsonMetadata read(JsonReader in) throws IOException {
+            List<String> key = null;
+            String value = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("value")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "key":
+                            key = JsonReaders.nextSegments(in);
+                            break;
+                        case "value":
+                            value = JsonReaders.nextString(in);
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+            }
+            in.endObject();
+
+            if (key == null || key.size() < 2) {
+                throw new IOException("Metadata without namespace and item name in key: " + key);
+            }
+            return new JsonMetadata(Symbols.intern(key.get(0)), key.get(1), value);
+        }
+
+        @Override
+        public void write(JsonWriter out, JsonMetadata metadata) throws IOException {
+            out.beginObject();
+            out.name("value").beginObject();
+            JsonReaders.writeSegments(out, "key", List.of(metadata.namespace, metadata.itemName));
+            out.name("value").value(metadata.value);
+            out.endObject();
+            out.endObject();
         }
     }
 }
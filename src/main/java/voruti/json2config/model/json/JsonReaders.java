@@ -0,0 +1,298 @@
+package voruti.json2config.model.json;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import voruti.json2config.model.Symbols;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for the TypeAdapters of the JsonDB models, which read JSON straight into their fields without reflection.
+ *
+ * @author voruti
+ */
+final class JsonReaders {
+
+    private JsonReaders() {
+    }
+
+
+    /**
+     * Reads a string, number or boolean as {@link String}.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the value, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     */
+    static String nextString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                return JsonParser.parseReader(in).toString();
+            default:
+                return in.nextString();
+        }
+    }
+
+    /**
+     * Reads a string like {@link #nextString(JsonReader)} and interns it, for values that repeat across entries.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the interned value, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     * @see Symbols
+     */
+    static String nextSymbol(JsonReader in) throws IOException {
+        return Symbols.intern(nextString(in));
+    }
+
+    /**
+     * Reads an array of strings into a compact array of interned values.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the interned values, {@link Symbols#EMPTY} for an empty array, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     */
+    static String[] nextSymbols(JsonReader in) throws IOException {
+        return nextArray(in, true);
+    }
+
+    /**
+     * Reads an array of strings into a compact array, without interning the values.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the values, {@link Symbols#EMPTY} for an empty array, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     */
+    static String[] nextStrings(JsonReader in) throws IOException {
+        return nextArray(in, false);
+    }
+
+    /**
+     * Reads an array of strings.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return an unmodifiable {@link List} of the values, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     */
+    static List<String> nextStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(nextString(in));
+        }
+        in.endArray();
+        return list.isEmpty() ? List.of() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Reads a UID object of openHAB, e.g. {@code {"segments": ["mqtt", "topic", "a", "b"]}}.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the segments, or {@code null} if the object or its segments are missing
+     * @throws IOException if the value can't be read
+     */
+    static List<String> nextSegments(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> segments = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("segments")) {
+                segments = nextStringList(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return segments;
+    }
+
+    /**
+     * Reads a UID of openHAB, either as object with segments (see {@link #nextSegments(JsonReader)}) or as string.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the UID with its segments joined by {@code :}, or {@code null} if it is missing
+     * @throws IOException if the value can't be read
+     */
+    static String nextUID(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            return nextString(in);
+        }
+        List<String> segments = nextSegments(in);
+        return segments == null ? null : String.join(":", segments);
+    }
+
+    /**
+     * Reads an object with string values into a compact map, keeping the order of its keys. Only the keys are interned,
+     * the values may be unique per entry.
+     *
+     * @param in the {@link JsonReader} to read from
+     * @return the entries, or {@code null} for JSON {@code null}
+     * @throws IOException if the value can't be read
+     */
+    static Map<String, String> nextStringMap(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, String> map = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            map.put(Symbols.intern(in.nextName()), nextString(in));
+        }
+        in.endObject();
+
+        // most maps are empty or only contain the profile:
+        if (map.isEmpty()) {
+            return Map.of();
+        } else if (map.size() == 1) {
+            Map.Entry<String, String> entry = map.entrySet().iterator().next();
+            return entry.getValue() == null ? Collections.singletonMap(entry.getKey(), null)
+                    : Map.of(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Writes {@code values} as array, or nothing if they are {@code null}.
+     *
+     * @param out    the {@link JsonWriter} to write to
+     * @param name   the name of the value
+     * @param values the values to write
+     * @throws IOException if the value can't be written
+     */
+    static void writeStringList(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values != null) {
+            out.name(name).beginArray();
+            for (String value : values) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+    }
+
+    /**
+     * Writes {@code values} as array, or nothing if they are {@code null}.
+     *
+     * @param out    the {@link JsonWriter} to write to
+     * @param name   the name of the value
+     * @param values the values to write
+     * @throws IOException if the value can't be written
+     */
+    static void writeStringArray(JsonWriter out, String name, String[] values) throws IOException {
+        writeStringList(out, name, values == null ? null : Arrays.asList(values));
+    }
+
+    /**
+     * Writes {@code segments} as UID object, or nothing if they are {@code null}.
+     *
+     * @param out      the {@link JsonWriter} to write to
+     * @param name     the name of the value
+     * @param segments the segments to write
+     * @throws IOException if the value can't be written
+     */
+    static void writeSegments(JsonWriter out, String name, List<String> segments) throws IOException {
+        if (segments != null) {
+            out.name(name).beginObject();
+            writeStringList(out, "segments", segments);
+            out.endObject();
+        }
+    }
+
+    /**
+     * Appends {@code value} as JSON string to {@code out}, escaped exactly like {@link com.google.gson.Gson#toJson}
+     * does by default (including the HTML-safe escapes), or {@code null}.
+     */
+    static void appendJsonString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '=':
+                case '\'':
+                case '\u2028':
+                case '\u2029':
+                    appendUnicodeEscape(out, c);
+                    break;
+                default:
+                    if (c < 0x20) {
+                        appendUnicodeEscape(out, c);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String[] nextArray(JsonReader in, boolean intern) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(intern ? nextSymbol(in) : nextString(in));
+        }
+        in.endArray();
+        return list.isEmpty() ? Symbols.EMPTY : list.toArray(Symbols.EMPTY);
+    }
+
+    private static void appendUnicodeEscape(StringBuilder out, char c) {
+        out.append("\\u");
+        String hex = Integer.toHexString(c);
+        for (int i = hex.length(); i < 4; i++) {
+            out.append('0');
+        }
+        out.append(hex);
+    }
+}
@@ -0,0 +1,402 @@
+package voruti.json2config.model.json;
+
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import voruti.json2config.model.IConvertible;
+import voruti.json2config.model.Symbols;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * A Thing or Bridge of the Thing JsonDB. Only what ends up in the ".things" file is kept: the configuration and the
+ * configured channels are rendered while reading, so large nested configurations are never held as objects.
+ */
+@JsonAdapter(JsonThing.Adapter.class)
+public class JsonThing implements IConvertible {
+
+    private static final String INDENT = "    ";
+
+    private final String uid;
+    private final String thingTypeUID;
+    private final String bridgeUID;
+    private final boolean bridge;
+    private final String label;
+    private final String location;
+    private final String configuration;
+    private final List<String> channels;
+
+
+    @SuppressWarnings("java:S107")
+    JsonThing(String uid, String thingTypeUID, String bridgeUID, boolean bridge, String label, String location,
+              String configuration, List<String> channels) {
+        this.uid = uid;
+        this.thingTypeUID = thingTypeUID;
+        this.bridgeUID = bridgeUID;
+        this.bridge = bridge;
+        this.label = label;
+        this.location = location;
+        this.configuration = configuration;
+        this.channels = channels;
+    }
+
+
+    /**
+     * @return the UID of the thing, e.g. {@code mqtt:topic:broker:sensor}
+     */
+    public String getUID() {
+        return uid;
+    }
+
+    /**
+     * @return the UID of the bridge of the thing, or {@code null} if it has none
+     */
+    public String getBridgeUID() {
+        return bridgeUID;
+    }
+
+    /**
+     * @return {@code true} if the thing is a bridge, {@code false} otherwise
+     */
+    public boolean isBridge() {
+        return bridge;
+    }
+
+    /**
+     * Checks if this thing can be defined in the block of {@code parent} with the short syntax
+     * {@code Thing <thing type id> <thing id>}, i.e. openHAB would derive the same UID from it.
+     *
+     * @param parent the bridge of this thing
+     * @return {@code true} if this thing can be nested in {@code parent}, {@code false} otherwise
+     */
+    public boolean isNestableIn(JsonThing parent) {
+        String[] segments = uid.split(":");
+        String[] parentSegments = parent.uid.split(":");
+        String[] typeSegments = thingTypeUID == null ? new String[0] : thingTypeUID.split(":");
+        if (!parent.uid.equals(bridgeUID) || typeSegments.length != 2 || parentSegments.length < 3
+                || !typeSegments[0].equals(parentSegments[0])) {
+            return false;
+        }
+
+        // binding:type:<bridge ids>:id
+        StringJoiner expected = new StringJoiner(":").add(thingTypeUID);
+        for (int i = 2; i < parentSegments.length; i++) {
+            expected.add(parentSegments[i]);
+        }
+        return uid.equals(expected.add(segments[segments.length - 1]).toString());
+    }
+
+    @Override
+    public String toConfigLine(String additional) {
+        return String.join(System.lineSeparator(), toConfigLines("", null, List.of()));
+    }
+
+    /**
+     * Renders the definition of this thing.
+     *
+     * @param indent      the indentation of the definition
+     * @param parent      the bridge whose block this thing is nested in (see {@link #isNestableIn(JsonThing)}), or
+     *                    {@code null} if it is defined on its own
+     * @param nestedLines the already indented definitions of things nested in this bridge
+     * @return the lines of the definition
+     */
+    public List<String> toConfigLines(String indent, JsonThing parent, List<String> nestedLines) {
+        StringBuilder header = new StringBuilder(indent).append(bridge ? "Bridge " : "Thing ");
+        if (parent != null) {
+            String[] segments = uid.split(":");
+            header.append(thingTypeUID.substring(thingTypeUID.indexOf(':') + 1)).append(' ')
+                    .append(segments[segments.length - 1]);
+        } else {
+            header.append(uid);
+        }
+        if (label != null && !label.isEmpty()) {
+            header.append(' ').append(quote(label));
+        }
+        if (parent == null && bridgeUID != null) {
+            header.append(" (").append(bridgeUID).append(')');
+        }
+        if (location != null && !location.isEmpty()) {
+            header.append(" @ ").append(quote(location));
+        }
+        if (configuration != null) {
+            header.append(" [ ").append(configuration).append(" ]");
+        }
+
+        List<String> lines = new ArrayList<>();
+        if (nestedLines.isEmpty() && channels.isEmpty()) {
+            lines.add(header.toString());
+            return lines;
+        }
+        lines.add(header.append(" {").toString());
+        lines.addAll(nestedLines);
+        if (!channels.isEmpty()) {
+            lines.add(indent + INDENT + "Channels:");
+            for (String channel : channels) {
+                lines.add(indent + INDENT + INDENT + channel);
+            }
+        }
+        lines.add(indent + "}");
+        return lines;
+    }
+
+
+    /**
+     * Quotes {@code value} as string of the DSL.
+     */
+    static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+
+    /**
+     * Reads an entry of the Thing JsonDB straight into a {@link JsonThing}. Only channels with configuration are kept,
+     * the others are defined by the thing type.
+     * <p>
+     * Writing produces the JsonDB layout of the UIDs, label and location. The configuration and the channels are only
+     * kept as rendered for the ".things" file, so they aren't written.
+     */
+    static class Adapter extends TypeAdapter<JsonThing> {
+
+        private static final String THING_CLASS = "org.openhab.core.thing.internal.ThingImpl";
+        private static final String BRIDGE_CLASS = "org.openhab.core.thing.internal.BridgeImpl";
+
+        @Override
+        public JsonThing read(JsonReader in) throws IOException {
+            String className = null;
+            boolean bridge = false;
+            String uid = null;
+            String thingTypeUID = null;
+            String bridgeUID = null;
+            String label = null;
+            String location = null;
+            String configuration = null;
+            List<String> channels = new ArrayList<>();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("class")) {
+                    className = JsonReaders.nextString(in);
+                    continue;
+                } else if (!name.equals("value")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "UID":
+                            uid = JsonReaders.nextUID(in);
+                            break;
+                        case "thingTypeUID":
+                            thingTypeUID = Symbols.intern(JsonReaders.nextUID(in));
+                            break;
+                        case "bridgeUID":
+                            bridgeUID = Symbols.intern(JsonReaders.nextUID(in));
+                            break;
+                        case "isBridge":
+                            bridge |= Boolean.parseBoolean(JsonReaders.nextString(in));
+                            break;
+                        case "label":
+                            label = JsonReaders.nextString(in);
+                            break;
+                        case "location":
+                            location = JsonReaders.nextSymbol(in);
+                            break;
+                        case "configuration":
+                            configuration = readConfiguration(in);
+                            break;
+                        case "channels":
+                            readChannels(in, channels);
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+            }
+            in.endObject();
+
+            if (uid == null) {
+                throw new IOException("Thing without UID");
+            }
+            bridge |= className != null && className.endsWith("BridgeImpl");
+            String[] segments = uid.split(":");
+            if (thingTypeUID == null && segments.length > 2) {
+                thingTypeUID = Symbols.intern(segments[0] + ":" + segments[1]);
+            }
+            return new JsonThing(uid, thingTypeUID, bridgeUID, bridge, label, location, configuration,
+                    channels.isEmpty() ? List.of() : List.copyOf(channels));
+        }
+
+        @Override
+        public void write(JsonWriter out, JsonThing thing) throws IOException {
+            out.beginObject();
+            out.name("class").value(thing.bridge ? BRIDGE_CLASS : THING_CLASS);
+            out.name("value").beginObject();
+            out.name("label").value(thing.label);
+            writeUID(out, "bridgeUID", thing.bridgeUID);
+            writeUID(out, "UID", thing.uid);
+            writeUID(out, "thingTypeUID", thing.thingTypeUID);
+            out.name("location").value(thing.location);
+            out.endObject();
+            out.endObject();
+        }
+
+
+        private static void writeUID(JsonWriter out, String name, String uid) throws IOException {
+            JsonReaders.writeSegments(out, name, uid == null ? null : List.of(uid.split(":", -1)));
+        }
+
+
+        /**
+         * Reads a configuration, e.g. {@code {"properties": {"host": "broker", "port": 1883}}} (openHAB 2.X) or
+         * {@code {"host": "broker", "port": 1883}} (since openHAB 3.X), and renders its properties like
+         * {@code host="broker", port=1883}.
+         *
+         * @return the rendered properties, or {@code null} if there are none
+         */
+        private static String readConfiguration(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            StringJoiner properties = new StringJoiner(", ");
+            readProperties(in, properties);
+            return properties.length() == 0 ? null : properties.toString();
+        }
+
+        private static void readProperties(JsonReader in, StringJoiner properties) throws IOException {
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (key.equals("properties") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                    readProperties(in, properties);
+                    continue;
+                }
+                String value = readValue(in);
+                if (value != null) {
+                    properties.add(key + "=" + value);
+                }
+            }
+            in.endObject();
+        }
+
+        /**
+         * Renders a configuration value: strings are quoted, numbers and booleans are kept and arrays become a list.
+         *
+         * @return the rendered value, or {@code null} for JSON {@code null} or an empty array
+         */
+        private static String readValue(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case NUMBER:
+                    return in.nextString();
+                case BOOLEAN:
+                    return String.valueOf(in.nextBoolean());
+                case STRING:
+                    return quote(in.nextString());
+                case BEGIN_ARRAY:
+                    StringJoiner values = new StringJoiner(", ");
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        String value = readValue(in);
+                        if (value != null) {
+                            values.add(value);
+                        }
+                    }
+                    in.endArray();
+                    return values.length() == 0 ? null : values.toString();
+                default:
+                    return quote(JsonParser.parseReader(in).toString());
+            }
+        }
+
+        private static void readChannels(JsonReader in, List<String> channels) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                String channel = readChannel(in);
+                if (channel != null) {
+                    channels.add(channel);
+                }
+            }
+            in.endArray();
+        }
+
+        /**
+         * Reads a channel and renders it like {@code Type number : power "Power" [ stateTopic="plug/power" ]}.
+         *
+         * @return the rendered channel, or {@code null} if it has no configuration
+         */
+        private static String readChannel(JsonReader in) throws IOException {
+            String uid = null;
+            String channelTypeUID = null;
+            String acceptedItemType = null;
+            String kind = null;
+            String label = null;
+            String configuration = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "uid":
+                        uid = JsonReaders.nextUID(in);
+                        break;
+                    case "channelTypeUID":
+                        channelTypeUID = JsonReaders.nextUID(in);
+                        break;
+                    case "acceptedItemType":
+                    case "itemType":
+                        acceptedItemType = JsonReaders.nextString(in);
+                        break;
+                    case "kind":
+                        kind = JsonReaders.nextString(in);
+                        break;
+                    case "label":
+                        label = JsonReaders.nextString(in);
+                        break;
+                    case "configuration":
+                        configuration = readConfiguration(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (configuration == null || uid == null) {
+                return null;
+            }
+
+            StringBuilder channel = new StringBuilder();
+            String binding = uid.substring(0, uid.indexOf(':') + 1);
+            if (channelTypeUID != null && channelTypeUID.startsWith(binding)
+                    && channelTypeUID.indexOf(':', binding.length()) < 0) {
+                channel.append("Type ").append(channelTypeUID.substring(binding.length()));
+            } else if ("TRIGGER".equals(kind)) {
+                channel.append("Trigger String");
+            } else if (acceptedItemType != null) {
+                channel.append(acceptedItemType);
+            } else {
+                return null;
+            }
+            channel.append(" : ").append(uid.substring(uid.lastIndexOf(':') + 1));
+            if (label != null && !label.isEmpty()) {
+                channel.append(' ').append(quote(label));
+            }
+            return channel.append(" [ ").append(configuration).append(" ]").toString();
+        }
+    }
+}
@@ -2,13 +2,23 @@ package voruti.json2config.service;
 
 import lombok.extern.slf4j.Slf4j;
 import voruti.json2config.model.IAppendable;
+import voruti.json2config.model.items.Binding;
+import voruti.json2config.model.items.ItemDefinition;
+import voruti.json2config.model.items.ItemsFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -21,7 +31,7 @@ public class Appender {
 
     private Appender() {
     }
-    
+
 
     /**
      * Appends data found in {@code appendableList} onto the end of items in the {@code directory}
@@ -30,52 +40,147 @@ public class Appender {
      * @param appendableList the list of data that needs appending to items
      */
     public static void searchAndAppend(String directory, List<IAppendable> appendableList) {
+        searchAndAppend(directory, appendableList, null);
+    }
+
+    /**
+     * Appends data found in {@code appendableList} onto the end of items in the {@code directory}, skipping the
+     * {@code excludedFile}.
+     *
+     * @param directory      the directory in which to search for ".items" files
+     * @param appendableList the list of data that needs appending to items
+     * @param excludedFile   a ".items" file in the {@code directory} to leave untouched, or {@code null}
+     */
+    public static void searchAndAppend(String directory, List<IAppendable> appendableList, String excludedFile) {
+        searchAndAppend(directory, appendableList, excludedFile, 1);
+    }
+
+    /**
+     * Appends data found in {@code appendableList} onto the end of items in the {@code directory}, skipping the
+     * {@code excludedFile}. Each ".items" file is scanned and rewritten by its own task on a pool of {@code threads}
+     * workers; results are collected in file order, so the outcome doesn't depend on the scheduling.
+     *
+     * @param directory      the directory in which to search for ".items" files
+     * @param appendableList the list of data that needs appending to items
+     * @param excludedFile   a ".items" file in the {@code directory} to leave untouched, or {@code null}
+     * @param threads        the maximum number of files to process in parallel
+     */
+    public static void searchAndAppend(String directory, List<IAppendable> appendableList, String excludedFile, int threads) {
+        searchAndAppend(directory, appendableList, excludedFile == null ? List.of() : List.of(excludedFile), threads,
+                null, false);
+    }
+
+    /**
+     * Appends data found in {@code appendableList} onto the end of items in the {@code directory}, skipping the
+     * {@code excludedFiles}. The resulting content of every ".items" file is recorded in the {@code manifest}.
+     *
+     * @param directory      the directory in which to search for ".items" files
+     * @param appendableList the list of data that needs appending to items
+     * @param excludedFiles  the ".items" files in the {@code directory} to leave untouched
+     * @param threads        the maximum number of files to process in parallel
+     * @param manifest       the {@link Manifest} of the last run, or {@code null}
+     * @param skipUnchanged  whether to skip files which are unchanged since the last run according to the
+     *                       {@code manifest}, because the data was already appended to them
+     */
+    public static void searchAndAppend(String directory, List<IAppendable> appendableList, Collection<String> excludedFiles,
+                                       int threads, Manifest manifest, boolean skipUnchanged) {
         // search items files:
-        List<String> itemsFiles = Appender.findItemsFilesInDir(directory);
+        Set<Path> excludedPaths = excludedFiles.stream()
+                .map(excludedFile -> Paths.get(excludedFile).toAbsolutePath().normalize())
+                .collect(Collectors.toSet());
+        List<String> itemsFiles = Appender.findItemsFilesInDir(directory).stream()
+                .filter(iFile -> !excludedPaths.contains(Paths.get(iFile).toAbsolutePath().normalize()))
+                .filter(iFile -> !(skipUnchanged && manifest != null && manifest.isUnchanged(iFile)))
+                .collect(Collectors.toList());
         // get names of all items:
-        List<String> itemNamesList = itemsFiles.stream()
-                .map(Appender::getItemNamesFromFile)
+        List<String> itemNamesList = SharedService.forEach(itemsFiles, threads, Appender::getItemNamesFromFile).stream()
                 .flatMap(Collection::stream)
                 .collect(Collectors.toList());
         log.info("Found {} items", itemNamesList.size());
         log.trace("itemNamesList={}", itemNamesList);
 
-        // only data present in both lists:
-        List<IAppendable> relevantDataList = appendableList.stream()
-                .filter(data -> itemNamesList.stream()
-                        .anyMatch(itemName -> itemName.equals(data.getItemName())))
-                .collect(Collectors.toList());
-        log.info("{} match with each other", relevantDataList.size());
-        log.trace("relevantDataList={}", relevantDataList);
+        // only data present in both lists, grouped by item name so every file only has to be read and written once:
+        Map<String, List<IAppendable>> appendablesByItemName = matchByItemName(itemNamesList, appendableList);
 
         // append the right data to the right item
-        int count = 0;
-        for (IAppendable appendable : relevantDataList) {
-            for (String iFile : itemsFiles) {
-                if (Appender.appendToItemInFile(appendable, iFile)) {
-                    count++;
+        int count = SharedService.forEach(itemsFiles, threads, iFile -> Appender.appendToItemsInFile(appendablesByItemName, iFile)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        log.info("Successfully appended {} channels/metadata!", count);
+
+        if (manifest != null) {
+            itemsFiles.forEach(manifest::recordFile);
+        }
+    }
+
+    /**
+     * Matches the {@code appendableList} against the {@code itemNames} with a hash lookup on
+     * {@link IAppendable#getItemName()} instead of comparing every pair.
+     *
+     * @param itemNames      the names of all items found in ".items" files
+     * @param appendableList the list of data that needs appending to items
+     * @return a {@link Map} with the item name as key and all matching appendables (in their original order) as value
+     */
+    public static Map<String, List<IAppendable>> matchByItemName(Collection<String> itemNames, List<IAppendable> appendableList) {
+        Set<String> itemNameSet = new HashSet<>(itemNames);
+
+        Map<String, List<IAppendable>> appendablesByItemName = new LinkedHashMap<>();
+        int matched = 0;
+        int orphans = 0;
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.MATCH)) {
+            for (IAppendable appendable : appendableList) {
+                if (itemNameSet.contains(appendable.getItemName())) {
+                    appendablesByItemName.computeIfAbsent(appendable.getItemName(), k -> new ArrayList<>()).add(appendable);
+                    matched++;
+                } else {
+                    log.trace("No item found for appendable={}", appendable);
+                    orphans++;
                 }
             }
         }
-        log.info("Successfully appended {} channels/metadata!", count);
+        int unmatchedItems = itemNameSet.size() - appendablesByItemName.size();
+        Stats.count(Stats.Counter.ENTRIES_MATCHED, matched);
 
-        log.warn("Warning: You might need to manually fix some converting mistakes (double channels, etc.)");
+        log.info("{} match with each other", matched);
+        log.info("{} items without channels/metadata, {} channels/metadata without item", unmatchedItems, orphans);
+        log.trace("appendablesByItemName={}", appendablesByItemName);
+
+        return appendablesByItemName;
+    }
+
+    /**
+     * Keeps only the appendables of the {@code itemNames}, see {@link Filter#acceptedItemNames(String)}.
+     *
+     * @param appendableList the channel links or metadata
+     * @param itemNames      the names of the items to append to, or {@code null} for all items
+     * @return the appendables of the {@code itemNames}, in their original order
+     */
+    public static List<IAppendable> onlyItems(List<IAppendable> appendableList, Set<String> itemNames) {
+        if (itemNames == null) {
+            return appendableList;
+        }
+        List<IAppendable> selected = appendableList.stream()
+                .filter(appendable -> itemNames.contains(appendable.getItemName()))
+                .collect(Collectors.toList());
+        Stats.count(Stats.Counter.ENTRIES_SKIPPED, appendableList.size() - selected.size());
+        return selected;
     }
 
     /**
      * Returns a {@link List} of Strings containing the names of all items in
-     * {@code fileName}.
+     * {@code fileName}, as parsed by the {@link ItemsParser}.
      *
      * @param fileName the file(-Name) to open and search for items
      * @return a {@link List} containing the names of the items
      */
     public static List<String> getItemNamesFromFile(String fileName) {
         try {
-            return Arrays.stream(SharedService.openFileToString(fileName).split("\n"))
-                    .filter(line -> !line.isEmpty())
-                    .map(Appender::searchNameInLine)
-                    .filter(itemName -> !itemName.isEmpty())
-                    .collect(Collectors.toList());
+            ItemsFileScanner scanner = ItemsFileScanner.open(fileName);
+            try (Stats.Timer ignored = Stats.time(Stats.Phase.PARSE)) {
+                return ItemsParser.parse(scanner.decode(0, scanner.size())).getItems().stream()
+                        .map(ItemDefinition::getName)
+                        .collect(Collectors.toList());
+            }
         } catch (IOException e) {
             log.error(Constants.LOG_CANT_OPEN_FILE, fileName);
         }
@@ -91,31 +196,79 @@ public class Appender {
      * @return {@code true} if the {@code appendable} could be appended, {@code false} otherwise
      */
     public static boolean appendToItemInFile(IAppendable appendable, String fileName) {
-        boolean successful = false;
+        return appendToItemsInFile(Map.of(appendable.getItemName(), List.of(appendable)), fileName) > 0;
+    }
+
+    /**
+     * Appends all {@code appendablesByItemName} to their items in {@code fileName}. The file is read once and parsed
+     * into an {@link ItemsFile}; the channel links and metadata are inserted as {@link Binding Bindings} (skipping
+     * ones the item already has) and the file is written back at most once, with its original formatting.
+     *
+     * @param appendablesByItemName the data to append, grouped by the name of the item it belongs to
+     * @param fileName              the file to search for the items
+     * @return the number of appendables that could be appended
+     */
+    public static int appendToItemsInFile(Map<String, List<IAppendable>> appendablesByItemName, String fileName) {
+        int count = 0;
 
         try {
-            List<String> originalLines = Arrays.asList(SharedService.openFileToString(fileName).split("\n"));
-            List<String> modifiedLines = originalLines.stream()
-                    .map(line -> {
-                        if (!line.isEmpty()) {
-                            String readItemName = searchNameInLine(line);
-                            if (!readItemName.isEmpty() && readItemName.equals(appendable.getItemName())) {
-                                return appendable.toConfigLine(line);
-                            }
-                        }
-                        // return unmodified line:
-                        return line;
-                    })
-                    .collect(Collectors.toList());
-
-            if (!originalLines.equals(modifiedLines)) {
-                successful = SharedService.writeLinesToFile(modifiedLines, fileName);
+            // only decode and parse files which might contain matching items:
+            ItemsFileScanner scanner = ItemsFileScanner.open(fileName);
+            if (!scanner.anyWord(appendablesByItemName::containsKey)) {
+                return 0;
+            }
+
+            ItemsFile itemsFile;
+            try (Stats.Timer ignored = Stats.time(Stats.Phase.PARSE)) {
+                itemsFile = ItemsParser.parse(scanner.decode(0, scanner.size()));
+            }
+            count = appendToItems(appendablesByItemName, itemsFile, fileName);
+
+            if (itemsFile.isModified()) {
+                log.debug("Writing modified items to file={}", fileName);
+                try (Stats.Timer ignored = Stats.time(Stats.Phase.WRITE)) {
+                    if (Diff.update(fileName, itemsFile::writeTo) == Diff.Outcome.FAILED) {
+                        count = 0;
+                    }
+                }
             }
         } catch (IOException e) {
             log.error(Constants.LOG_CANT_OPEN_FILE, fileName);
+            count = 0;
         }
 
-        return successful;
+        return count;
+    }
+
+    /**
+     * Inserts all {@code appendablesByItemName} as {@link Binding Bindings} into their items in the parsed
+     * {@code itemsFile}, skipping ones the item already has.
+     *
+     * @param appendablesByItemName the data to append, grouped by the name of the item it belongs to
+     * @param itemsFile             the parsed ".items" file
+     * @param source                the name of the file, for logging
+     * @return the number of appendables that could be appended
+     */
+    public static int appendToItems(Map<String, List<IAppendable>> appendablesByItemName, ItemsFile itemsFile,
+                                    String source) {
+        int count = 0;
+        int duplicates = 0;
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+            for (ItemDefinition item : itemsFile.getItems()) {
+                for (IAppendable appendable : appendablesByItemName.getOrDefault(item.getName(), List.of())) {
+                    if (item.addBinding(appendable.toBinding())) {
+                        count++;
+                    } else {
+                        log.debug("Item {} already has {}", item.getName(), appendable.toBinding());
+                        duplicates++;
+                    }
+                }
+            }
+        }
+        if (duplicates > 0) {
+            log.info("Skipped {} channels/metadata already present in file {}", duplicates, source);
+        }
+        return count;
     }
 
     /**
@@ -139,11 +292,12 @@ public class Appender {
      * Searches for ".items" files in the {@code directory}.
      *
      * @param directory the directory to search in
-     * @return a {@link List} with all file paths of ".items" files
+     * @return a sorted {@link List} with all file paths of ".items" files
      */
     public static List<String> findItemsFilesInDir(String directory) {
         return Arrays.stream(Objects.requireNonNull(new File(directory).listFiles((dir, filename) -> filename.endsWith(".items"))))
                 .map(File::getAbsolutePath)
+                .sorted()
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,187 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes a file as UTF-8 through a buffered channel into a temporary file next to it, which is only moved into place
+ * by {@link #commit()}. A crash or an error while writing therefore never leaves a half-written file for openHAB to
+ * load; the temporary file is removed on {@link #close()} instead.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class AtomicFileWriter implements Appendable, Closeable {
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final Writer writer;
+
+    private long lines;
+    private long bytes;
+    private boolean committed;
+
+
+    private AtomicFileWriter(Path target, Path temporary, FileChannel channel) {
+        this.target = target;
+        this.temporary = temporary;
+        this.channel = channel;
+        this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
+
+    /**
+     * Creates a temporary file in the directory of {@code fileName} to write to. It is created with the default
+     * permissions (or the ones of the existing file), not the owner-only ones of {@link Files#createTempFile}.
+     *
+     * @param fileName the path/name of the file to write
+     * @return a new {@link AtomicFileWriter} for the file
+     * @throws IOException if the temporary file can't be created
+     */
+    public static AtomicFileWriter open(String fileName) throws IOException {
+        Path target = Paths.get(fileName).toAbsolutePath();
+        // ".tmp" isn't picked up by openHAB:
+        Path temporary = target.resolveSibling(String.format(".%s.%s.tmp", target.getFileName(),
+                Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36)));
+        log.debug("Writing file={} via {}", target, temporary);
+
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            if (Files.exists(target) && Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(target));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return new AtomicFileWriter(target, temporary, channel);
+    }
+
+
+    /**
+     * Writes the {@code line} followed by a line separator.
+     *
+     * @param line the line to write
+     * @throws IOException if the temporary file can't be written
+     */
+    public void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write(System.lineSeparator());
+        lines++;
+    }
+
+    @Override
+    public AtomicFileWriter append(CharSequence csq) throws IOException {
+        writer.append(csq);
+        return this;
+    }
+
+    @Override
+    public AtomicFileWriter append(CharSequence csq, int start, int end) throws IOException {
+        writer.append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public AtomicFileWriter append(char c) throws IOException {
+        writer.append(c);
+        return this;
+    }
+
+    /**
+     * @return the number of lines written by {@link #writeLine(String)}
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the number of bytes written, available after {@link #commit()}
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Flushes the written content and compares it with the target file, without reading either into memory.
+     *
+     * @return {@code true} if the target file exists and already has exactly the written content
+     * @throws IOException if the content can't be flushed or compared
+     */
+    public boolean matchesTarget() throws IOException {
+        writer.flush();
+        if (!Files.isRegularFile(target) || Files.size(target) != channel.size()) {
+            return false;
+        }
+        try (InputStream written = Files.newInputStream(temporary);
+             InputStream current = Files.newInputStream(target)) {
+            byte[] writtenBuffer = new byte[8192];
+            byte[] currentBuffer = new byte[8192];
+            int read;
+            while ((read = written.readNBytes(writtenBuffer, 0, writtenBuffer.length)) > 0) {
+                if (current.readNBytes(currentBuffer, 0, read) != read
+                        || !Arrays.equals(writtenBuffer, 0, read, currentBuffer, 0, read)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Flushes all written content to disk and atomically replaces the target file with it.
+     *
+     * @throws IOException if the content can't be flushed or moved
+     */
+    public void commit() throws IOException {
+        writer.flush();
+        bytes = channel.size();
+        channel.force(true);
+        writer.close();
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+        Stats.count(Stats.Counter.FILES_WRITTEN, 1);
+        Stats.count(Stats.Counter.BYTES_WRITTEN, bytes);
+        log.debug("Written {} lines ({} bytes) to file={}", lines, bytes, target);
+    }
+
+    /**
+     * Closes the writer. If it wasn't committed, the temporary file is deleted and the target file stays untouched.
+     *
+     * @throws IOException if the temporary file can't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            try {
+                writer.close();
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
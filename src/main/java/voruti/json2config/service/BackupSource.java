@@ -0,0 +1,142 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Provides the JsonDB files of an openHAB backup, either a backup zip or a directory (e.g. {@code userdata},
+ * {@code userdata/jsondb} or {@code userdata/jsondb/backup}). Zips are opened as {@link FileSystem}, so their entries
+ * are streamed without extracting them.
+ * <p>
+ * For every database the newest snapshot is used: the live file in a {@code jsondb} directory if there is one,
+ * otherwise the copy in the backup directory with the newest timestamp in its name ({@code <millis>--<file name>}).
+ * Only names are compared, older snapshots are never opened.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class BackupSource implements Closeable {
+
+    /**
+     * Backups are named by their creation time in milliseconds; longer numbers (which wouldn't fit into a
+     * {@code long}) aren't snapshots.
+     */
+    private static final Pattern SNAPSHOT = Pattern.compile("(\\d{1,18})--(.+\\.json)");
+    private static final int MAX_DEPTH = 5;
+
+    private final FileSystem zip;
+    private final boolean ownsZip;
+    private final Map<String, Path> liveFiles = new HashMap<>();
+    private final Map<String, Path> newestSnapshots = new HashMap<>();
+    private final Map<String, Long> newestTimestamps = new HashMap<>();
+
+
+    private BackupSource(FileSystem zip, boolean ownsZip) {
+        this.zip = zip;
+        this.ownsZip = ownsZip;
+    }
+
+
+    /**
+     * Opens the backup at {@code location} and indexes the names of its JsonDB files.
+     *
+     * @param location path to a backup zip or a directory containing JsonDB files
+     * @return the opened {@link BackupSource}; it has to be closed after use
+     * @throws IOException if the backup can't be opened
+     */
+    public static BackupSource open(String location) throws IOException {
+        Path path = Paths.get(location).toAbsolutePath().normalize();
+        BackupSource source;
+        Path root;
+        if (Files.isDirectory(path)) {
+            source = new BackupSource(null, false);
+            root = path;
+        } else {
+            // registered by URI, so the paths of its entries can be passed around as URI strings:
+            URI uri = URI.create("jar:" + path.toUri());
+            try {
+                source = new BackupSource(FileSystems.newFileSystem(uri, Map.of()), true);
+            } catch (FileSystemAlreadyExistsException e) {
+                // opened by someone else in this JVM, who also closes it:
+                log.debug("Backup {} is already open, reading it from there", location);
+                source = new BackupSource(FileSystems.getFileSystem(uri), false);
+            }
+            root = source.zip.getPath("/");
+        }
+
+        try (Stream<Path> files = Files.walk(root, MAX_DEPTH)) {
+            files.filter(file -> file.getFileName() != null && file.getFileName().toString().endsWith(".json"))
+                    .forEach(source::index);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+        log.debug("Found JsonDB files {} and snapshots {} in backup {}", source.liveFiles.keySet(),
+                source.newestTimestamps, location);
+        return source;
+    }
+
+    /**
+     * Resolves the newest snapshot of a database, trying the name since openHAB 3.X first.
+     *
+     * @param v2FileName the name of the database file in openHAB 2.X
+     * @param v3FileName the name of the database file since openHAB 3.X
+     * @return the path (or URI, for zips) of the snapshot, see {@link SharedService#path(String)}, or {@code null} if
+     * the backup doesn't contain the database
+     */
+    public String resolve(String v2FileName, String v3FileName) {
+        Path file = newest(v3FileName);
+        if (file == null) {
+            file = newest(v2FileName);
+        }
+        if (file == null) {
+            return null;
+        }
+        log.info("Using {}", file.toUri());
+        return zip == null ? file.toString() : file.toUri().toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsZip) {
+            zip.close();
+        }
+    }
+
+
+    private void index(Path file) {
+        String name = file.getFileName().toString();
+        Matcher matcher = SNAPSHOT.matcher(name);
+        if (matcher.matches()) {
+            long timestamp = Long.parseLong(matcher.group(1));
+            String database = matcher.group(2);
+            if (timestamp > newestTimestamps.getOrDefault(database, -1L)) {
+                newestTimestamps.put(database, timestamp);
+                newestSnapshots.put(database, file);
+            }
+        } else if (file.getParent() != null && file.getParent().getFileName() != null
+                && file.getParent().getFileName().toString().equals("jsondb")) {
+            liveFiles.put(name, file);
+        }
+    }
+
+    private Path newest(String database) {
+        // the live file is always newer than its backups:
+        Path file = liveFiles.get(database);
+        return file != null ? file : newestSnapshots.get(database);
+    }
+}
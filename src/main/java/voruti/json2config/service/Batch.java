@@ -0,0 +1,246 @@
+package voruti.json2config.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs the conversion for many openHAB installations in one JVM. The installations are listed in a batch file, a JSON
+ * array of {@link Job Jobs}:
+ * <pre>
+ * [
+ *   {"name": "home", "jsondb": "/srv/home/userdata/jsondb", "directory": "/srv/home/conf/items"},
+ *   {"jsondb": "/srv/office/jsondb", "directory": "/srv/office/items", "output": "/srv/office/items/db.items"}
+ * ]
+ * </pre>
+ * The jobs are run on a bounded number of threads; a failing job doesn't stop the others.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Batch {
+
+    private static final Gson GSON = new Gson();
+
+
+    private Batch() {
+    }
+
+
+    /**
+     * Reads the jobs from the batch file {@code fileName}.
+     *
+     * @param fileName the path/name of the batch file
+     * @return the {@link Job Jobs} in the order of the file
+     * @throws IOException if the file can't be read or contains an invalid job
+     */
+    public static List<Job> load(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        List<Job> jobs;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            jobs = GSON.fromJson(reader, TypeToken.getParameterized(List.class, Job.class).getType());
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid batch file " + fileName + ": " + e.getMessage(), e);
+        }
+        if (jobs == null) {
+            return List.of();
+        }
+
+        // paths are relative to the batch file:
+        Path base = path.toAbsolutePath().getParent();
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            if (job == null || job.jsondb == null || job.directory == null) {
+                throw new IOException("Job " + (i + 1) + " in batch file " + fileName + " needs jsondb and directory");
+            }
+            job.jsondb = base.resolve(job.jsondb).normalize().toString();
+            job.directory = base.resolve(job.directory).normalize().toString();
+            job.output = job.output == null
+                    ? Paths.get(job.directory, "json.items").toString()
+                    : base.resolve(job.output).normalize().toString();
+            if (job.name == null) {
+                job.name = job.jsondb;
+            }
+            job.version = detectVersion(job.jsondb);
+        }
+        return jobs;
+    }
+
+    /**
+     * Runs the {@code task} for every job, using up to {@code threads} workers.
+     *
+     * @param jobs    the {@link Job Jobs} to run
+     * @param threads the maximum number of jobs to run in parallel
+     * @param task    the task to run for each job; a {@link RuntimeException} marks the job as failed
+     * @return a {@link Result} for every job, in the order of {@code jobs}
+     */
+    public static List<Result> run(List<Job> jobs, int threads, Consumer<Job> task) {
+        List<Callable<Result>> callables = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            callables.add(() -> runJob(job, task));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobs.size())));
+        try {
+            List<Result> results = new ArrayList<>(jobs.size());
+            for (Future<Result> future : executor.invokeAll(callables)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running batch", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to run batch", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Logs a summary line for every job.
+     *
+     * @param results the {@link Result Results} of {@link #run(List, int, Consumer)}
+     * @return {@code true} if all jobs succeeded, {@code false} otherwise
+     */
+    public static boolean logSummary(List<Result> results) {
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        log.info("Batch finished: {} of {} jobs succeeded", results.size() - failed, results.size());
+        for (Result result : results) {
+            if (result.isSuccess()) {
+                log.info("  OK     {} (openHAB {}) in {} ms", result.getJob().getName(), result.getJob().getVersion(),
+                        result.getMillis());
+            } else {
+                log.error("  FAILED {} (openHAB {}) in {} ms: {}", result.getJob().getName(),
+                        result.getJob().getVersion(), result.getMillis(), result.getError());
+            }
+        }
+        return failed == 0;
+    }
+
+
+    /**
+     * Detects the openHAB version of a JsonDB directory: 3 if any file uses the names since openHAB 3.X, 2 otherwise.
+     *
+     * @param jsondb the JsonDB directory
+     * @return the major openHAB version
+     */
+    static int detectVersion(String jsondb) {
+        return Files.exists(Paths.get(jsondb, Constants.DEFAULT_V3_JSON_FILE))
+                || Files.exists(Paths.get(jsondb, Constants.DEFAULT_V3_CHANNEL_FILE))
+                || Files.exists(Paths.get(jsondb, Constants.DEFAULT_V3_METADATA_FILE))
+                || Files.exists(Paths.get(jsondb, Constants.DEFAULT_V3_THING_FILE))
+                ? 3 : 2;
+    }
+
+    private static Result runJob(Job job, Consumer<Job> task) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            log.info("Starting job {}", job.name);
+            task.accept(job);
+        } catch (RuntimeException e) {
+            log.error("Job {} failed: {}", job.name, e.toString());
+            error = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+        return new Result(job, (System.nanoTime() - start) / 1_000_000, error);
+    }
+
+
+    /**
+     * An openHAB installation to convert: its JsonDB directory, the directory with its ".items" files and the output
+     * file (default: {@code json.items} in that directory; things go to a ".things" file next to it). Relative paths
+     * are resolved against the batch file.
+     */
+    public static final class Job {
+        private String name;
+        private String jsondb;
+        private String directory;
+        private String output;
+        private transient int version;
+
+
+        private Job() {
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        /**
+         * @return the major openHAB version detected for the JsonDB directory
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the path of a JsonDB file, with the name for the detected {@link #getVersion() version}.
+         *
+         * @param v2FileName the name of the file in openHAB 2.X
+         * @param v3FileName the name of the file since openHAB 3.X
+         * @return the path to the file in the JsonDB directory
+         */
+        public String jsonDbFile(String v2FileName, String v3FileName) {
+            return Paths.get(jsondb, version == 3 ? v3FileName : v2FileName).toString();
+        }
+    }
+
+    /**
+     * The outcome of a {@link Job}.
+     */
+    public static final class Result {
+        private final Job job;
+        private final long millis;
+        private final String error;
+
+
+        Result(Job job, long millis, String error) {
+            this.job = job;
+            this.millis = millis;
+            this.error = error;
+        }
+
+
+        public Job getJob() {
+            return job;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package voruti.json2config.service;
 
 import lombok.extern.slf4j.Slf4j;
 import voruti.json2config.model.IAppendable;
-import voruti.json2config.model.json.JsonChannelLink;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * @author voruti
@@ -26,21 +26,81 @@ public class ChannelAppender {
      * @param directory       the directory in which to search for ".items" files
      */
     public static void start(String channelLinkFile, String directory) {
+        start(channelLinkFile, directory, 1);
+    }
+
+    /**
+     * Appends the channel links from {@code channelLinkFile} to all ".items" files
+     * in the {@code directory}.
+     *
+     * @param channelLinkFile path to the file which contains the channel links in JSON format
+     * @param directory       the directory in which to search for ".items" files
+     * @param threads         the maximum number of ".items" files to process in parallel
+     */
+    public static void start(String channelLinkFile, String directory, int threads) {
+        start(channelLinkFile, directory, threads, null);
+    }
+
+    /**
+     * Appends the channel links from {@code channelLinkFile} to all ".items" files in the {@code directory}. With a
+     * {@code manifest}, files which are unchanged since the last run are skipped if the channel links are unchanged, too.
+     *
+     * @param channelLinkFile path to the file which contains the channel links in JSON format
+     * @param directory       the directory in which to search for ".items" files
+     * @param threads         the maximum number of ".items" files to process in parallel
+     * @param manifest        the {@link Manifest} of the last run, or {@code null} to process everything
+     */
+    public static void start(String channelLinkFile, String directory, int threads, Manifest manifest) {
+        start(channelLinkFile, directory, threads, manifest, null);
+    }
+
+    /**
+     * Appends the channel links from {@code channelLinkFile} like {@link #start(String, String, int, Manifest)}, but
+     * only the ones of the {@code itemNames}.
+     *
+     * @param channelLinkFile path to the file which contains the channel links in JSON format
+     * @param directory       the directory in which to search for ".items" files
+     * @param threads         the maximum number of ".items" files to process in parallel
+     * @param manifest        the {@link Manifest} of the last run, or {@code null} to process everything
+     * @param itemNames       the names of the items to append to (see {@link Filter#acceptedItemNames(String)}), or
+     *                        {@code null} for all items
+     */
+    public static void start(String channelLinkFile, String directory, int threads, Manifest manifest,
+                             Set<String> itemNames) {
         log.debug("Starting ChannelAppender with channelLinkFile={}, directory={}", channelLinkFile, directory);
 
+        // the files don't tell whether the filters changed:
+        boolean unchanged = manifest != null && Filter.active().isEmpty() && manifest.isUnchanged(channelLinkFile);
+        if (unchanged && Appender.findItemsFilesInDir(directory).stream().allMatch(manifest::isUnchanged)) {
+            log.info("File {} and all .items files are unchanged since the last run, skipping", channelLinkFile);
+            return;
+        }
+
         try {
-            // open file:
-            String content = SharedService.openFileToString(channelLinkFile);
-            // map to list of channel links:
-            List<IAppendable> channelLinkList = SharedService.jsonToConvertibleMap(content, Type.CHANNEL).values().stream()
-                    .map(JsonChannelLink.class::cast)
-                    .collect(Collectors.toList());
-            log.info("Found {} channel links", channelLinkList.size());
-            log.trace("channelLinkList={}", channelLinkList);
-
-            Appender.searchAndAppend(directory, channelLinkList);
+            Appender.searchAndAppend(directory, Appender.onlyItems(readChannelLinks(channelLinkFile), itemNames),
+                    List.of(), threads, manifest, unchanged);
+            if (manifest != null) {
+                manifest.recordFile(channelLinkFile);
+            }
         } catch (IOException e) {
             log.error(Constants.LOG_CANT_OPEN_FILE, channelLinkFile);
         }
     }
+
+    /**
+     * Reads the channel links from {@code channelLinkFile}.
+     *
+     * @param channelLinkFile path to the file which contains the channel links in JSON format
+     * @return a {@link List} with all channel links
+     * @throws IOException if the file can't be opened
+     */
+    public static List<IAppendable> readChannelLinks(String channelLinkFile) throws IOException {
+        // stream file into list of channel links:
+        List<IAppendable> channelLinkList = new ArrayList<>();
+        SharedService.streamJsonFile(channelLinkFile, Type.CHANNEL, (key, convertible) -> channelLinkList.add((IAppendable) convertible));
+        log.info("Found {} channel links", channelLinkList.size());
+        log.trace("channelLinkList={}", channelLinkList);
+
+        return channelLinkList;
+    }
 }
@@ -12,6 +12,8 @@ public final class Constants {
     public static final String DEFAULT_V3_CHANNEL_FILE = "org.openhab.core.thing.link.ItemChannelLink.json";
     public static final String DEFAULT_V2_METADATA_FILE = "org.eclipse.smarthome.core.items.Metadata.json";
     public static final String DEFAULT_V3_METADATA_FILE = "org.openhab.core.items.Metadata.json";
+    public static final String DEFAULT_V2_THING_FILE = "org.eclipse.smarthome.core.thing.Thing.json";
+    public static final String DEFAULT_V3_THING_FILE = "org.openhab.core.thing.Thing.json";
 
 
     private Constants() {
@@ -1,9 +1,13 @@
 package voruti.json2config.service;
 
 import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.IAppendable;
 import voruti.json2config.model.IConvertible;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,22 +30,157 @@ public class Converter {
      * @param type       type of file to convert
      */
     public static void start(String jsonFile, String outputFile, Type type) {
+        start(jsonFile, outputFile, type, List.of());
+    }
+
+    /**
+     * Converts {@code jsonFile} to {@code outputFile} and directly appends the {@code appendableList} to the
+     * converted items, so the output only has to be rendered and written once.
+     *
+     * @param jsonFile       path to file (input)
+     * @param outputFile     path to file (output)
+     * @param type           type of file to convert
+     * @param appendableList the list of data that needs appending to the converted items
+     */
+    public static void start(String jsonFile, String outputFile, Type type, List<IAppendable> appendableList) {
+        start(jsonFile, outputFile, type, appendableList, null);
+    }
+
+    /**
+     * Converts {@code jsonFile} to {@code outputFile} and directly appends the {@code appendableList} to the
+     * converted items. With a {@code manifest}, entries whose JSON didn't change since the last run reuse their
+     * rendered line and the output is only written if its content changes.
+     *
+     * @param jsonFile       path to file (input)
+     * @param outputFile     path to file (output)
+     * @param type           type of file to convert
+     * @param appendableList the list of data that needs appending to the converted items
+     * @param manifest       the {@link Manifest} of the last run, or {@code null} to convert everything
+     */
+    public static void start(String jsonFile, String outputFile, Type type, List<IAppendable> appendableList, Manifest manifest) {
+        start(jsonFile, outputFile, type, appendableList, manifest, Layout.DEFAULT);
+    }
+
+    /**
+     * Converts {@code jsonFile} to {@code outputFile} like {@link #start(String, String, Type, List, Manifest)}, but
+     * arranges and writes the converted items with the given {@code layout}.
+     *
+     * @param jsonFile       path to file (input)
+     * @param outputFile     path to file (output)
+     * @param type           type of file to convert
+     * @param appendableList the list of data that needs appending to the converted items
+     * @param manifest       the {@link Manifest} of the last run, or {@code null} to convert everything
+     * @param layout         the {@link Layout} to arrange the output with
+     * @return the paths of all output files, see {@link Layout#write(List, String, Manifest)}
+     */
+    public static List<String> start(String jsonFile, String outputFile, Type type, List<IAppendable> appendableList,
+                                     Manifest manifest, Layout layout) {
         log.debug("Starting Converter with jsonFile={}, outputFile={}, type={}", jsonFile, outputFile, type);
 
-        try {
-            // open file:
-            String content = SharedService.openFileToString(jsonFile);
-            // map into map:
-            Map<String, IConvertible> convertibleMap = SharedService.jsonToConvertibleMap(content, type);
-            // get lines from map:
-            List<String> lines = convertibleMapToLines(convertibleMap);
-            // write file:
-            SharedService.writeLinesToFile(lines, outputFile);
-
-            log.info("Written entries of type {} to file {}!", type, outputFile);
+        if (type == Type.THING) {
+            // things aren't arranged like items, but grouped per bridge:
+            return ThingConverter.start(jsonFile, outputFile, manifest) ? List.of(outputFile) : List.of();
+        }
+
+        if (manifest != null && appendableList.isEmpty() && !layout.isSharded() && Filter.active().isEmpty()
+                && manifest.isUnchanged(jsonFile) && manifest.isUnchanged(outputFile)) {
+            log.info("File {} is unchanged since the last run, skipping", jsonFile);
+            return List.of(outputFile);
+        }
+
+        // join the data to append by item name:
+        Map<String, List<IAppendable>> appendablesByItemName = appendableList.stream()
+                .collect(Collectors.groupingBy(IAppendable::getItemName));
+
+        // every line is rendered into this buffer, so only the final line is a new String:
+        StringBuilder buffer = new StringBuilder(256);
+        try (ExternalSort lines = layout.newSort()) {
+            if (manifest == null && layout.getThreads() > 1) {
+                // parse and render concurrently:
+                Pipeline.run(jsonFile, type, layout.getThreads(), (key, convertible, threadBuffer) -> {
+                    convertible.appendTo(threadBuffer, key);
+                    return append(threadBuffer, appendablesByItemName.get(key));
+                }, lines::add);
+            } else if (manifest == null) {
+                // stream file and convert every entry into a line as soon as it is parsed:
+                SharedService.streamJsonFile(jsonFile, type, (key, convertible) -> {
+                    try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+                        buffer.setLength(0);
+                        convertible.appendTo(buffer, key);
+                        lines.add(append(buffer, appendablesByItemName.get(key)));
+                    }
+                });
+            } else {
+                // only convert entries which changed since the last run:
+                Map<String, Manifest.Entry> entries = new HashMap<>();
+                Filter filter = Filter.active();
+                SharedService.streamJsonElementsFile(jsonFile, key -> filter.acceptsKey(type, key), (key, element) -> {
+                    // the cached line doesn't tell whether the item still matches:
+                    IConvertible convertible = filter.hasContentCriteria()
+                            ? SharedService.fromJsonElement(element, type)
+                            : null;
+                    if (convertible != null && !filter.accepts(type, convertible)) {
+                        Stats.count(Stats.Counter.ENTRIES_SKIPPED, 1);
+                        return;
+                    }
+                    String hash = SharedService.hash(element.toString());
+                    String line = manifest.cachedLine(type, key, hash);
+                    if (line == null) {
+                        if (convertible == null) {
+                            convertible = SharedService.fromJsonElement(element, type);
+                        }
+                        try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+                            buffer.setLength(0);
+                            convertible.appendTo(buffer, key);
+                            line = buffer.toString();
+                        }
+                        log.trace("Converted changed entry {}", key);
+                    }
+                    entries.put(key, new Manifest.Entry(hash, line));
+                    try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+                        List<IAppendable> appendables = appendablesByItemName.get(key);
+                        if (appendables == null) {
+                            Stats.count(Stats.Counter.LINES_RENDERED, 1);
+                            lines.add(line);
+                        } else {
+                            buffer.setLength(0);
+                            lines.add(append(buffer.append(line), appendables));
+                        }
+                    }
+                });
+                manifest.cacheEntries(type, entries);
+            }
+            // write file(s):
+            List<String> outputFiles = layout.write(lines, outputFile, manifest);
+
+            if (manifest != null) {
+                manifest.recordFile(jsonFile);
+            }
+            return outputFiles;
         } catch (IOException e) {
             log.error("Can't open file {}", jsonFile);
+            return List.of();
+        } catch (UncheckedIOException e) {
+            log.error("Can't sort converted lines in temporary files: {}", e.getCause().toString());
+            return List.of();
+        }
+    }
+
+    /**
+     * Appends all {@code appendables} to the {@code line}.
+     *
+     * @param line        the buffer containing the converted line
+     * @param appendables the data to append, or {@code null}
+     * @return the line with all data appended
+     */
+    private static String append(StringBuilder line, List<IAppendable> appendables) {
+        Stats.count(Stats.Counter.LINES_RENDERED, 1);
+        if (appendables != null) {
+            for (IAppendable appendable : appendables) {
+                appendable.appendToLine(line);
+            }
         }
+        return line.toString();
     }
 
     /**
@@ -52,23 +191,24 @@ public class Converter {
      * @return a {@link List} with all lines as {@link String Strings}
      */
     public static List<String> convertibleMapToLines(Map<String, IConvertible> map) {
-        List<String> lines = map.entrySet().stream()
-                .map(entry -> entry.getValue().toConfigLine(entry.getKey()))
-                .sorted()
-                .collect(Collectors.toList());
-
-        // adding empty lines between:
-        String last = lines.get(0).substring(0, 4);
-        for (int i = 1; i < lines.size(); i++) {
-            String now = lines.get(i).substring(0, 4);
-
-            if (!now.equals(last)) {
-                lines.add(i, "");
-            }
-
-            last = now;
-        }
+        StringBuilder buffer = new StringBuilder(256);
+        List<String> lines = new ArrayList<>(map.size());
+        map.forEach((key, convertible) -> {
+            buffer.setLength(0);
+            convertible.appendTo(buffer, key);
+            lines.add(buffer.toString());
+        });
+        return arrangeLines(lines);
+    }
 
-        return lines;
+    /**
+     * Sorts the converted {@code lines} and separates lines of different item types with empty lines.
+     *
+     * @param lines the converted lines
+     * @return a {@link List} with all lines, sorted and separated
+     * @see Layout#arrange(List)
+     */
+    public static List<String> arrangeLines(List<String> lines) {
+        return Layout.DEFAULT.arrange(lines);
     }
 }
@@ -0,0 +1,382 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the desired content of a file with its current content, so files are only written when they really change.
+ * Every write of a ".items" file makes openHAB reload its model, so unchanged files must not be touched.
+ * <p>
+ * In dry-run mode nothing is written; instead the changes are printed as unified diff.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Diff {
+
+    /**
+     * The result of {@link #update(String, Content)}.
+     */
+    public enum Outcome {
+        /**
+         * The file already has the content.
+         */
+        UNCHANGED,
+        /**
+         * The file was written.
+         */
+        WRITTEN,
+        /**
+         * The file would have been written, but dry-run mode is enabled.
+         */
+        PLANNED,
+        /**
+         * The file couldn't be written.
+         */
+        FAILED
+    }
+
+    /**
+     * The number of unchanged lines shown around each change.
+     */
+    static final int CONTEXT = 3;
+
+    /**
+     * Above this number of changed lines, the changed region is shown as a single replacement.
+     */
+    private static final int MAX_EDITS = 2000;
+
+    private static volatile boolean dryRun;
+
+
+    private Diff() {
+    }
+
+
+    /**
+     * Enables dry-run mode: no file is written, the planned changes are printed instead.
+     */
+    public static void enableDryRun() {
+        dryRun = true;
+    }
+
+    /**
+     * @return {@code true} if dry-run mode is enabled, {@code false} otherwise
+     */
+    public static boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Writes {@code content} to {@code fileName} atomically, unless the file already has exactly this content. In
+     * dry-run mode the difference is printed instead.
+     *
+     * @param fileName the file to update
+     * @param content  the desired content of the file
+     * @return the {@link Outcome}
+     * @see #update(String, Content)
+     */
+    public static Outcome update(String fileName, String content) {
+        return update(fileName, out -> out.append(content));
+    }
+
+    /**
+     * Streams the {@code content} into a temporary file next to {@code fileName} and only replaces the file with it
+     * if the content differs, see {@link #commit(AtomicFileWriter, String)}; neither the new nor the current content is
+     * held in memory. Only in dry-run mode both are read into memory, to print the difference.
+     *
+     * @param fileName the file to update
+     * @param content  writes the desired content of the file
+     * @return the {@link Outcome}
+     */
+    public static Outcome update(String fileName, Content content) {
+        try {
+            if (dryRun) {
+                StringBuilder desired = new StringBuilder();
+                content.writeTo(desired);
+                return plan(fileName, desired.toString());
+            }
+            try (AtomicFileWriter writer = AtomicFileWriter.open(fileName)) {
+                content.writeTo(writer);
+                return commit(writer, fileName);
+            }
+        } catch (IOException e) {
+            log.error("{} at writing file {}", e, fileName);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Commits the content written to the {@code writer}, unless the file already has exactly this content. The content
+     * is compared on disk, so it is never held in memory; therefore no diff is printed in dry-run mode.
+     *
+     * @param writer   the {@link AtomicFileWriter} with the desired content of the file
+     * @param fileName the file to update, for logging
+     * @return the {@link Outcome}
+     */
+    public static Outcome commit(AtomicFileWriter writer, String fileName) {
+        try {
+            if (writer.matchesTarget()) {
+                return Outcome.UNCHANGED;
+            }
+            if (dryRun) {
+                return Outcome.PLANNED;
+            }
+            writer.commit();
+            return Outcome.WRITTEN;
+        } catch (IOException e) {
+            log.error("{} at writing file {}", e, fileName);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Creates a unified diff from {@code oldLines} to {@code newLines}.
+     *
+     * @param fileName the name of the file, for the header
+     * @param oldLines the current lines
+     * @param newLines the desired lines
+     * @return the lines of the diff, empty if there is no difference
+     */
+    public static List<String> unified(String fileName, List<String> oldLines, List<String> newLines) {
+        List<Edit> script = editScript(oldLines, newLines);
+        List<String> diff = new ArrayList<>();
+
+        int i = 0;
+        while (i < script.size()) {
+            // find the next change and all changes close to it:
+            int change = i;
+            while (change < script.size() && script.get(change).type == ' ') {
+                change++;
+            }
+            if (change == script.size()) {
+                break;
+            }
+            int lastChange = change;
+            for (int j = change + 1; j < script.size() && j - lastChange <= 2 * CONTEXT; j++) {
+                if (script.get(j).type != ' ') {
+                    lastChange = j;
+                }
+            }
+            int start = Math.max(i, change - CONTEXT);
+            int end = Math.min(script.size(), lastChange + CONTEXT + 1);
+
+            if (diff.isEmpty()) {
+                diff.add("--- a/" + fileName);
+                diff.add("+++ b/" + fileName);
+            }
+            diff.add(hunkHeader(script.subList(start, end)));
+            for (Edit edit : script.subList(start, end)) {
+                diff.add(edit.type + (edit.type == '+' ? newLines.get(edit.newIndex) : oldLines.get(edit.oldIndex)));
+            }
+            i = end;
+        }
+        return diff;
+    }
+
+
+    /**
+     * Prints the difference between the current content of {@code fileName} and the desired {@code content}.
+     */
+    private static Outcome plan(String fileName, String content) {
+        String current;
+        try {
+            current = Files.readString(Paths.get(fileName), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            current = null;
+        } catch (IOException e) {
+            // unreadable (e.g. not UTF-8), so it would be replaced:
+            log.debug("Can't compare with file={}: {}", fileName, e.toString());
+            current = null;
+        }
+        if (content.equals(current)) {
+            return Outcome.UNCHANGED;
+        }
+
+        List<String> plan = unified(fileName, current == null ? List.of() : lines(current), lines(content));
+        if (plan.isEmpty()) {
+            log.info("File {} would be rewritten, only its line separators differ", fileName);
+            return Outcome.PLANNED;
+        }
+        PrintStream out = System.out;
+        synchronized (out) {
+            plan.forEach(out::println);
+        }
+        return Outcome.PLANNED;
+    }
+
+    /**
+     * Splits {@code content} into lines, without line separators.
+     */
+    static List<String> lines(String content) {
+        return content.lines().collect(Collectors.toList());
+    }
+
+    private static String hunkHeader(List<Edit> hunk) {
+        int oldCount = 0;
+        int newCount = 0;
+        for (Edit edit : hunk) {
+            if (edit.type != '+') {
+                oldCount++;
+            }
+            if (edit.type != '-') {
+                newCount++;
+            }
+        }
+        // an empty range starts at the line before it:
+        int oldStart = hunk.get(0).oldIndex + (oldCount > 0 ? 1 : 0);
+        int newStart = hunk.get(0).newIndex + (newCount > 0 ? 1 : 0);
+        return String.format("@@ -%d,%d +%d,%d @@", oldStart, oldCount, newStart, newCount);
+    }
+
+    /**
+     * Computes the shortest edit script with the algorithm of Myers. Lines are compared by ids from a hashed line
+     * index, and the unchanged lines at the start and end are skipped before.
+     */
+    private static List<Edit> editScript(List<String> oldLines, List<String> newLines) {
+        int prefix = 0;
+        while (prefix < oldLines.size() && prefix < newLines.size()
+                && oldLines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldLines.size() - prefix && suffix < newLines.size() - prefix
+                && oldLines.get(oldLines.size() - 1 - suffix).equals(newLines.get(newLines.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        // hashed line index:
+        Map<String, Integer> ids = new HashMap<>();
+        int[] a = new int[oldLines.size() - prefix - suffix];
+        int[] b = new int[newLines.size() - prefix - suffix];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = ids.computeIfAbsent(oldLines.get(prefix + i), line -> ids.size());
+        }
+        for (int i = 0; i < b.length; i++) {
+            b[i] = ids.computeIfAbsent(newLines.get(prefix + i), line -> ids.size());
+        }
+
+        List<Edit> script = new ArrayList<>(oldLines.size() + b.length);
+        for (int i = 0; i < prefix; i++) {
+            script.add(new Edit(' ', i, i));
+        }
+        List<Edit> middle = myers(a, b);
+        for (Edit edit : middle) {
+            script.add(new Edit(edit.type, prefix + edit.oldIndex, prefix + edit.newIndex));
+        }
+        for (int i = suffix; i > 0; i--) {
+            script.add(new Edit(' ', oldLines.size() - i, newLines.size() - i));
+        }
+        return script;
+    }
+
+    private static List<Edit> myers(int[] a, int[] b) {
+        int n = a.length;
+        int m = b.length;
+        int max = Math.min(n + m, MAX_EDITS);
+
+        // v[k] is the furthest x on diagonal k; the trace keeps v[-d-1..d+1] from before each step d:
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        boolean found = false;
+        for (int d = 0; d <= max && !found; d++) {
+            int[] snapshot = new int[2 * d + 3];
+            System.arraycopy(v, offset - d - 1, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    found = true;
+                    break;
+                }
+            }
+        }
+
+        List<Edit> script = new ArrayList<>();
+        if (!found) {
+            // too many changes, replace the whole region:
+            for (int x = 0; x < n; x++) {
+                script.add(new Edit('-', x, 0));
+            }
+            for (int y = 0; y < m; y++) {
+                script.add(new Edit('+', n, y));
+            }
+            return script;
+        }
+
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] snapshot = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || (k != d && snapshot[k - 1 + d + 1] < snapshot[k + 1 + d + 1]) ? k + 1 : k - 1;
+            int previousX = snapshot[previousK + d + 1];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                script.add(new Edit(' ', x, y));
+            }
+            if (d > 0) {
+                script.add(x == previousX ? new Edit('+', x, previousY) : new Edit('-', previousX, y));
+            }
+            x = previousX;
+            y = previousY;
+        }
+        Collections.reverse(script);
+        return script;
+    }
+
+
+    /**
+     * Writes the content of a file, e.g. into an {@link AtomicFileWriter}.
+     */
+    @FunctionalInterface
+    public interface Content {
+
+        /**
+         * @param out the {@link Appendable} to write the content to
+         * @throws IOException if the {@code out} can't be written
+         */
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * A line of the edit script: {@code ' '} (unchanged), {@code '-'} (removed) or {@code '+'} (added), with the
+     * positions in the old and new lines.
+     */
+    private static final class Edit {
+        private final char type;
+        private final int oldIndex;
+        private final int newIndex;
+
+
+        private Edit(char type, int oldIndex, int newIndex) {
+            this.type = type;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+        }
+    }
+}
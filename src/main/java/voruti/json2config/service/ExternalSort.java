@@ -0,0 +1,291 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.Symbols;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects converted lines and sorts them like {@link Layout#group(List)}: by their {@link Grouping} key, then by line.
+ * As long as the estimated size of the collected lines stays within the memory budget, they are simply kept. Above it,
+ * the lines are sorted and spilled to a run file in a temporary directory, and all runs are merged at the end, so the
+ * heap needed doesn't grow with the size of the database.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class ExternalSort implements Closeable {
+
+    /**
+     * A budget that is never exceeded, so nothing is spilled.
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /**
+     * Estimated bytes of a line besides its characters: the {@link String} and its array, the slot in the buffer and
+     * the keyed copy made while spilling.
+     */
+    private static final long LINE_OVERHEAD = 96;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Comparator<Keyed> ORDER = Comparator.<Keyed, String>comparing(keyed -> keyed.key)
+            .thenComparing(keyed -> keyed.line);
+
+    private final Grouping grouping;
+    private final long maxMemory;
+    private final List<String> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes;
+    private long size;
+    private Path directory;
+
+
+    /**
+     * @param grouping  how the lines are grouped, see {@link Layout}
+     * @param maxMemory the estimated bytes the collected lines may take before they are spilled, or
+     *                  {@link #UNLIMITED}
+     */
+    public ExternalSort(Grouping grouping, long maxMemory) {
+        this.grouping = grouping;
+        this.maxMemory = maxMemory;
+    }
+
+
+    /**
+     * Adds a converted line, spilling all collected lines to a run file if the memory budget is exceeded.
+     *
+     * @param line the converted line
+     * @throws UncheckedIOException if the run file can't be written
+     */
+    public void add(String line) {
+        buffer.add(line);
+        size++;
+        bufferedBytes += LINE_OVERHEAD + 2L * line.length();
+        if (bufferedBytes > maxMemory) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of lines added
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if lines were spilled to run files, so they have to be {@link #merge(Sink) merged}
+     */
+    public boolean hasSpilled() {
+        return !runs.isEmpty();
+    }
+
+    /**
+     * @return the collected lines, unsorted; all lines if nothing {@link #hasSpilled() was spilled}
+     */
+    public List<String> lines() {
+        return buffer;
+    }
+
+    /**
+     * Merges the run files and the collected lines, passing every line with its key to the {@code sink} in order.
+     *
+     * @param sink receives the lines
+     * @throws IOException if a run file can't be read or the {@code sink} fails
+     */
+    public void merge(Sink sink) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        sources.add(new MemorySource(sorted()));
+        buffer.clear();
+        bufferedBytes = 0;
+        log.debug("Merging {} lines from {} runs", size, runs.size());
+
+        PriorityQueue<Source> queue = new PriorityQueue<>(Comparator.comparing(source -> source.head, ORDER));
+        try {
+            for (Path run : runs) {
+                sources.add(new RunSource(run));
+            }
+            for (Source source : sources) {
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Source source = queue.poll();
+                sink.accept(source.head.key, source.head.line);
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes the run files.
+     *
+     * @throws IOException if a run file can't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        if (directory != null) {
+            Files.deleteIfExists(directory);
+            directory = null;
+        }
+    }
+
+
+    private Keyed[] sorted() {
+        Keyed[] keyed = new Keyed[buffer.size()];
+        for (int i = 0; i < keyed.length; i++) {
+            String line = buffer.get(i);
+            keyed[i] = new Keyed(Symbols.intern(grouping.key(line)), line);
+        }
+        Arrays.sort(keyed, ORDER);
+        return keyed;
+    }
+
+    private void spill() throws IOException {
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.WRITE)) {
+            if (directory == null) {
+                directory = Files.createTempDirectory("json2config-");
+            }
+            Path run = directory.resolve("run" + runs.size());
+            runs.add(run);
+            Keyed[] keyed = sorted();
+            buffer.clear();
+            bufferedBytes = 0;
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+                for (Keyed line : keyed) {
+                    writeString(out, line.key);
+                    writeString(out, line.line);
+                }
+            }
+            log.debug("Spilled {} lines to {}", keyed.length, run);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Receives the merged lines, see {@link #merge(Sink)}.
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * @param key  the {@link Grouping} key of the line
+         * @param line the converted line
+         * @throws IOException if the line can't be written
+         */
+        void accept(String key, String line) throws IOException;
+    }
+
+    private static final class Keyed {
+        private final String key;
+        private final String line;
+
+
+        private Keyed(String key, String line) {
+            this.key = key;
+            this.line = line;
+        }
+    }
+
+    /**
+     * A sorted sequence of lines, whose current line is {@code head}.
+     */
+    private abstract static class Source implements Closeable {
+        Keyed head;
+
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemorySource extends Source {
+        private final Iterator<Keyed> lines;
+
+
+        private MemorySource(Keyed[] lines) {
+            this.lines = Arrays.asList(lines).iterator();
+        }
+
+
+        @Override
+        boolean advance() {
+            head = lines.hasNext() ? lines.next() : null;
+            return head != null;
+        }
+    }
+
+    private static final class RunSource extends Source {
+        private final DataInputStream in;
+
+
+        private RunSource(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+        }
+
+
+        @Override
+        boolean advance() throws IOException {
+            String key;
+            try {
+                key = readString(in);
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+            head = new Keyed(key, readString(in));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
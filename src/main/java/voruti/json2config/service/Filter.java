@@ -0,0 +1,199 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.IConvertible;
+import voruti.json2config.model.json.JsonItem;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the JsonDB entries to convert. The criteria are combined with "and", the values of a single criterion with
+ * "or"; a criterion without values accepts everything.
+ * <p>
+ * Item names and bindings are part of the JsonDB keys, so they are checked before an entry is parsed and a
+ * non-matching entry is skipped unparsed (see {@link SharedService#streamJson}). Groups, tags and item types are only
+ * known from the entry itself; they are checked right after an item is read, before it is rendered.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Filter {
+
+    /**
+     * Accepts every entry.
+     */
+    public static final Filter NONE = new Filter(List.of(), List.of(), List.of(), List.of(), List.of(), List.of());
+
+    private static final String LINK_SEPARATOR = " -> ";
+
+    private static volatile Filter active = NONE;
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+    private final Set<String> groups;
+    private final Set<String> tags;
+    private final Set<String> itemTypes;
+    private final Set<String> bindings;
+
+
+    /**
+     * @param includes  globs of the item names to convert ({@code *} and {@code ?} as wildcards)
+     * @param excludes  globs of the item names not to convert, even if included
+     * @param groups    the groups of which the converted items must be a direct member
+     * @param tags      the tags of which the converted items must have one
+     * @param itemTypes the item types to convert, e.g. {@code Switch} or {@code Number} (also matching
+     *                  {@code Number:Temperature})
+     * @param bindings  the binding ids of the channel links and things to convert, e.g. {@code zwave}
+     */
+    @SuppressWarnings("java:S107")
+    public Filter(Collection<String> includes, Collection<String> excludes, Collection<String> groups,
+                  Collection<String> tags, Collection<String> itemTypes, Collection<String> bindings) {
+        this.includes = includes.stream().map(Filter::glob).collect(Collectors.toUnmodifiableList());
+        this.excludes = excludes.stream().map(Filter::glob).collect(Collectors.toUnmodifiableList());
+        this.groups = Set.copyOf(groups);
+        this.tags = Set.copyOf(tags);
+        this.itemTypes = itemTypes.stream().map(itemType -> itemType.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.bindings = Set.copyOf(bindings);
+    }
+
+
+    /**
+     * Sets the {@link Filter} applied to all streamed JsonDB files.
+     *
+     * @param filter the {@link Filter}, or {@link #NONE}
+     */
+    public static void activate(Filter filter) {
+        active = filter;
+    }
+
+    /**
+     * @return the {@link Filter} applied to all streamed JsonDB files
+     */
+    public static Filter active() {
+        return active;
+    }
+
+    /**
+     * @return {@code true} if this filter accepts every entry, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty() && groups.isEmpty() && tags.isEmpty() && itemTypes.isEmpty()
+                && bindings.isEmpty();
+    }
+
+    /**
+     * Checks the parts of an entry which are known from its key alone: the item name and the binding.
+     *
+     * @param type the {@link Type} of the entry
+     * @param key  the JsonDB key of the entry, e.g. {@code Light_1 -> zwave:device:stick:node5:switch_binary} for a
+     *             channel link
+     * @return {@code false} if the entry can be skipped without parsing it, {@code true} otherwise
+     */
+    public boolean acceptsKey(Type type, String key) {
+        switch (type) {
+            case ITEM:
+                return acceptsName(key);
+            case CHANNEL:
+                int separator = key.indexOf(LINK_SEPARATOR);
+                return separator < 0
+                        || acceptsName(key.substring(0, separator))
+                        && acceptsBinding(key.substring(separator + LINK_SEPARATOR.length()));
+            case METADATA:
+                // namespace:item
+                return acceptsName(key.substring(key.indexOf(':') + 1));
+            case THING:
+                return acceptsBinding(key);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks the parts of an entry which are only known after parsing it: the groups, tags and type of items.
+     *
+     * @param type        the {@link Type} of the entry
+     * @param convertible the parsed entry
+     * @return {@code true} if the entry is to be converted, {@code false} otherwise
+     */
+    public boolean accepts(Type type, IConvertible convertible) {
+        if (type != Type.ITEM || !(convertible instanceof JsonItem)) {
+            return true;
+        }
+        JsonItem item = (JsonItem) convertible;
+        return (groups.isEmpty() || item.getGroupNames().stream().anyMatch(groups::contains))
+                && (tags.isEmpty() || item.getTags().stream().anyMatch(tags::contains))
+                && (itemTypes.isEmpty() || acceptsItemType(item.getItemType()));
+    }
+
+    /**
+     * @return {@code true} if {@link #accepts(Type, IConvertible)} rejects some entries, so they have to be parsed
+     */
+    public boolean hasContentCriteria() {
+        return !groups.isEmpty() || !tags.isEmpty() || !itemTypes.isEmpty();
+    }
+
+    /**
+     * Reads the names of the items in {@code itemFile} accepted by this filter. Channel links and metadata only know the
+     * name of their item, so with {@link #hasContentCriteria() content criteria} they are selected by these names.
+     *
+     * @param itemFile the path/name of the Item JsonDB file
+     * @return the names of the accepted items
+     * @throws IOException if the file can't be opened or read
+     */
+    public Set<String> acceptedItemNames(String itemFile) throws IOException {
+        Set<String> itemNames = new HashSet<>();
+        SharedService.streamJsonFile(itemFile, Type.ITEM, this, (key, convertible) -> itemNames.add(key));
+        log.info("{} items match the filters", itemNames.size());
+        return itemNames;
+    }
+
+
+    private boolean acceptsName(String itemName) {
+        return (includes.isEmpty() || includes.stream().anyMatch(glob -> glob.matcher(itemName).matches()))
+                && excludes.stream().noneMatch(glob -> glob.matcher(itemName).matches());
+    }
+
+    private boolean acceptsBinding(String uid) {
+        return bindings.isEmpty() || bindings.contains(uid.substring(0, Math.max(uid.indexOf(':'), 0)));
+    }
+
+    private boolean acceptsItemType(String itemType) {
+        if (itemType == null) {
+            return false;
+        }
+        String lowerCase = itemType.toLowerCase(Locale.ROOT);
+        int dimension = lowerCase.indexOf(':');
+        return itemTypes.contains(lowerCase) || dimension > 0 && itemTypes.contains(lowerCase.substring(0, dimension));
+    }
+
+    /**
+     * Compiles a glob with {@code *} (any characters) and {@code ?} (a single character) as wildcards.
+     */
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,45 @@
+package voruti.json2config.service;
+
+import voruti.json2config.model.items.ItemDefinition;
+
+/**
+ * How converted items are grouped in the output, see {@link Layout}.
+ *
+ * @author voruti
+ */
+public enum Grouping {
+
+    /**
+     * By item type, e.g. {@code Number} for {@code Number:Temperature}.
+     */
+    TYPE {
+        @Override
+        public String key(String line) {
+            int end = 0;
+            while (end < line.length() && line.charAt(end) != ':' && !Character.isWhitespace(line.charAt(end))) {
+                end++;
+            }
+            return line.substring(0, end);
+        }
+    },
+
+    /**
+     * By the first group the item is a member of. Items without a group have an empty key.
+     */
+    GROUP {
+        @Override
+        public String key(String line) {
+            ItemDefinition item = ItemsParser.parseItem(line);
+            return item == null || item.getGroups().isEmpty() ? "" : item.getGroups().get(0);
+        }
+    };
+
+
+    /**
+     * Determines the key of the group a converted line belongs to.
+     *
+     * @param line the converted line
+     * @return the key of the group
+     */
+    public abstract String key(String line);
+}
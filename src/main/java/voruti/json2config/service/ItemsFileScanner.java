@@ -0,0 +1,132 @@
+package voruti.json2config.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * Scans ".items" files directly in a byte buffer, so files without relevant items are never decoded and parsed. The
+ * words of the file are found on the raw bytes: every item name the {@link ItemsParser} finds is such a word, no matter
+ * how the item is spread over lines, while words in comments, labels or bindings at most cause a needless parse.
+ * <p>
+ * The file is read into a heap buffer instead of being memory-mapped: ".items" files are small, and a mapping would
+ * keep the file locked on Windows until it is garbage collected, so it couldn't be replaced after appending.
+ *
+ * @author voruti
+ */
+public final class ItemsFileScanner {
+
+    private final ByteBuffer buffer;
+
+
+    private ItemsFileScanner(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    /**
+     * Reads the file with {@code fileName} into memory. The file is closed afterwards.
+     *
+     * @param fileName the path/name of the file to open
+     * @return a new {@link ItemsFileScanner} for the file
+     * @throws IOException if the file can't be read or is too large to be scanned
+     */
+    public static ItemsFileScanner open(String fileName) throws IOException {
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.READ);
+             FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to scan: " + fileName);
+            }
+            Stats.count(Stats.Counter.FILES_READ, 1);
+            Stats.count(Stats.Counter.BYTES_READ, size);
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until full or the file ended early
+            }
+            return new ItemsFileScanner(buffer.flip());
+        }
+    }
+
+
+    /**
+     * Checks if any word of the file, i.e. a run of letters, digits and underscores like an item name, matches the
+     * {@code predicate}.
+     *
+     * @param predicate tests the decoded words
+     * @return {@code true} if a word matches, {@code false} otherwise
+     */
+    public boolean anyWord(Predicate<String> predicate) {
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.READ)) {
+            int limit = buffer.limit();
+            int position = 0;
+            while (position < limit) {
+                int start = position;
+                boolean ascii = true;
+                // non-ASCII bytes are part of multibyte characters, which are only classified after decoding:
+                while (position < limit && (isWordByte(buffer.get(position)) || buffer.get(position) < 0)) {
+                    ascii &= buffer.get(position) >= 0;
+                    position++;
+                }
+                if (position == start) {
+                    position++;
+                } else if (ascii ? predicate.test(decode(start, position)) : anyWord(decode(start, position), predicate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return the size of the scanned content in bytes
+     */
+    public int size() {
+        return buffer.limit();
+    }
+
+    /**
+     * Decodes the bytes from {@code start} (inclusive) to {@code end} (exclusive).
+     *
+     * @param start the start position
+     * @param end   the end position
+     * @return the decoded {@link String}
+     */
+    public String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.duplicate().position(start).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Splits the decoded {@code text} into words like {@link ItemsParser} does and tests them.
+     */
+    private static boolean anyWord(String text, Predicate<String> predicate) {
+        int position = 0;
+        while (position < text.length()) {
+            int start = position;
+            while (position < text.length() && isWordChar(text.charAt(position))) {
+                position++;
+            }
+            if (position == start) {
+                position++;
+            } else if (predicate.test(text.substring(start, position))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return b >= '0' && b <= '9' || b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z' || b == '_';
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,298 @@
+package voruti.json2config.service;
+
+import voruti.json2config.model.items.Binding;
+import voruti.json2config.model.items.ItemDefinition;
+import voruti.json2config.model.items.ItemsFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizes and parses the content of ".items" files into an {@link ItemsFile}. Items may span several lines and be
+ * surrounded by comments. Text that can't be parsed as an item is kept verbatim, line by line.
+ *
+ * @author voruti
+ */
+public final class ItemsParser {
+
+    private static final Set<String> ITEM_TYPES = Set.of("Call", "Color", "Contact", "DateTime", "Dimmer", "Group",
+            "Image", "Location", "Number", "Player", "Rollershutter", "String", "Switch");
+
+    private final String content;
+    private int pos;
+
+
+    private ItemsParser(String content) {
+        this.content = content;
+    }
+
+
+    /**
+     * Parses the {@code content} of a ".items" file.
+     *
+     * @param content the content to parse
+     * @return the parsed {@link ItemsFile}
+     */
+    public static ItemsFile parse(String content) {
+        return new ItemsParser(content).parseFile();
+    }
+
+    /**
+     * Parses a single item, e.g. a line converted from JsonDB.
+     *
+     * @param line the source text of the item
+     * @return the parsed {@link ItemDefinition}, or {@code null} if the {@code line} isn't an item
+     */
+    public static ItemDefinition parseItem(String line) {
+        ItemsParser parser = new ItemsParser(line);
+        parser.skipTrivia();
+        return parser.parseItemDefinition();
+    }
+
+
+    private ItemsFile parseFile() {
+        List<Object> segments = new ArrayList<>();
+        int verbatimStart = 0;
+        while (true) {
+            skipTrivia();
+            if (pos >= content.length()) {
+                break;
+            }
+
+            int itemStart = pos;
+            ItemDefinition item = parseItemDefinition();
+            if (item != null) {
+                if (itemStart > verbatimStart) {
+                    segments.add(content.substring(verbatimStart, itemStart));
+                }
+                segments.add(item);
+                verbatimStart = pos;
+            } else {
+                // keep the unparsable line:
+                pos = itemStart;
+                while (pos < content.length() && content.charAt(pos) != '\n') {
+                    pos++;
+                }
+            }
+        }
+        if (verbatimStart < content.length()) {
+            segments.add(content.substring(verbatimStart));
+        }
+
+        return new ItemsFile(segments);
+    }
+
+    private ItemDefinition parseItemDefinition() {
+        int start = pos;
+        String type = readType();
+        if (type == null || !skipTrivia()) {
+            return null;
+        }
+        String name = readWord();
+        if (name == null) {
+            return null;
+        }
+        int end = pos;
+
+        String label = null;
+        if (nextPartStartsWith('"')) {
+            label = readString();
+            end = pos;
+        }
+        String icon = null;
+        if (nextPartStartsWith('<')) {
+            icon = readEnclosed('<', '>').trim();
+            end = pos;
+        }
+        List<String> groups = List.of();
+        if (nextPartStartsWith('(')) {
+            groups = splitList(readEnclosed('(', ')'));
+            end = pos;
+        }
+        List<String> tags = List.of();
+        if (nextPartStartsWith('[')) {
+            tags = splitList(readEnclosed('[', ']'));
+            end = pos;
+        }
+        List<Binding> bindings = new ArrayList<>();
+        int bindingsOpen = -1;
+        int bindingsClose = -1;
+        if (nextPartStartsWith('{')) {
+            bindingsOpen = pos - start;
+            if (!readBindings(bindings)) {
+                return null;
+            }
+            bindingsClose = pos - 1 - start;
+            end = pos;
+        }
+        // leave whatever follows the item (whitespace, comments) to the verbatim text:
+        pos = end;
+
+        return new ItemDefinition(type, name, label, icon, groups, tags, bindings, content.substring(start, end),
+                bindingsOpen, bindingsClose);
+    }
+
+    /**
+     * Skips trivia and checks if the next part of the item starts with {@code c}. If not, the position is reset.
+     */
+    private boolean nextPartStartsWith(char c) {
+        int mark = pos;
+        skipTrivia();
+        if (pos < content.length() && content.charAt(pos) == c) {
+            return true;
+        }
+        pos = mark;
+        return false;
+    }
+
+    private boolean readBindings(List<Binding> bindings) {
+        pos++; // {
+        while (true) {
+            skipTrivia();
+            if (pos >= content.length()) {
+                return false;
+            }
+            if (content.charAt(pos) == '}') {
+                pos++;
+                return true;
+            }
+
+            int keyStart = pos;
+            while (pos < content.length() && (isWordChar(content.charAt(pos)) || content.charAt(pos) == '.' || content.charAt(pos) == '-')) {
+                pos++;
+            }
+            String key = content.substring(keyStart, pos);
+            skipTrivia();
+            if (key.isEmpty() || pos >= content.length() || content.charAt(pos) != '=') {
+                return false;
+            }
+            pos++;
+            skipTrivia();
+            String value = pos < content.length() && content.charAt(pos) == '"' ? readString() : readWord();
+            if (value == null) {
+                return false;
+            }
+            String config = "";
+            if (nextPartStartsWith('[')) {
+                int configStart = pos;
+                readEnclosed('[', ']');
+                config = content.substring(configStart, pos);
+            }
+            bindings.add(new Binding(key, value, config));
+
+            skipTrivia();
+            if (pos < content.length() && content.charAt(pos) == ',') {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Reads an item type like {@code Number:Temperature} or {@code Group:Switch:OR(ON,OFF)}. Returns {@code null} if
+     * the base type is unknown.
+     */
+    private String readType() {
+        int start = pos;
+        if (pos >= content.length() || !Character.isLetter(content.charAt(pos))) {
+            return null;
+        }
+        while (pos < content.length() && (isWordChar(content.charAt(pos)) || content.charAt(pos) == ':')) {
+            pos++;
+        }
+        if (pos < content.length() && content.charAt(pos) == '(') {
+            readEnclosed('(', ')');
+        }
+        String type = content.substring(start, pos);
+        return ITEM_TYPES.contains(type.split(":", 2)[0]) ? type : null;
+    }
+
+    private String readWord() {
+        int start = pos;
+        while (pos < content.length() && isWordChar(content.charAt(pos))) {
+            pos++;
+        }
+        return pos > start ? content.substring(start, pos) : null;
+    }
+
+    /**
+     * Reads a quoted string and returns its content without the quotes.
+     */
+    private String readString() {
+        int start = ++pos;
+        while (pos < content.length() && content.charAt(pos) != '"') {
+            pos += content.charAt(pos) == '\\' ? 2 : 1;
+        }
+        String string = content.substring(start, Math.min(pos, content.length()));
+        pos = Math.min(pos + 1, content.length());
+        return string;
+    }
+
+    /**
+     * Reads from the opening to the matching closing character, skipping quoted strings, and returns the content in
+     * between.
+     */
+    private String readEnclosed(char open, char close) {
+        int start = ++pos;
+        int depth = 1;
+        while (pos < content.length()) {
+            char c = content.charAt(pos);
+            if (c == '"') {
+                readString();
+                continue;
+            }
+            if (c == open && open != close) {
+                depth++;
+            } else if (c == close && --depth == 0) {
+                break;
+            }
+            pos++;
+        }
+        String enclosed = content.substring(start, Math.min(pos, content.length()));
+        pos = Math.min(pos + 1, content.length());
+        return enclosed;
+    }
+
+    /**
+     * Skips whitespace, line breaks and comments.
+     *
+     * @return {@code true} if anything was skipped, {@code false} otherwise
+     */
+    private boolean skipTrivia() {
+        int start = pos;
+        while (pos < content.length()) {
+            char c = content.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (content.startsWith("//", pos)) {
+                while (pos < content.length() && content.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (content.startsWith("/*", pos)) {
+                int end = content.indexOf("*/", pos + 2);
+                pos = end < 0 ? content.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return pos > start;
+    }
+
+    private static List<String> splitList(String list) {
+        List<String> elements = new ArrayList<>();
+        for (String element : list.split(",")) {
+            element = element.strip();
+            if (element.length() >= 2 && element.startsWith("\"") && element.endsWith("\"")) {
+                element = element.substring(1, element.length() - 1);
+            }
+            if (!element.isEmpty()) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
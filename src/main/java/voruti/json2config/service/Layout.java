@@ -0,0 +1,294 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Arranges converted lines: they are grouped by a {@link Grouping} key in a single pass, sorted within their group
+ * and the groups are separated by empty lines. Optionally, every group is written to its own ".items" file.
+ *
+ * @author voruti
+ */
+@Slf4j
+public class Layout {
+
+    /**
+     * Groups by item type into a single file.
+     */
+    public static final Layout DEFAULT = new Layout(Grouping.TYPE, false, 1);
+
+    private static final String UNGROUPED = "ungrouped";
+
+    private final Grouping grouping;
+    private final boolean sharded;
+    private final int threads;
+    private final long maxMemory;
+
+
+    /**
+     * @param grouping how to group the lines
+     * @param sharded  whether to write every group to its own file
+     * @param threads  the maximum number of threads to render and write with
+     */
+    public Layout(Grouping grouping, boolean sharded, int threads) {
+        this(grouping, sharded, threads, ExternalSort.UNLIMITED);
+    }
+
+    /**
+     * @param grouping  how to group the lines
+     * @param sharded   whether to write every group to its own file
+     * @param threads   the maximum number of threads to render and write with, see {@link Pipeline}
+     * @param maxMemory the estimated bytes the converted lines may take in memory before they are spilled to temporary
+     *                  files, see {@link ExternalSort}
+     */
+    public Layout(Grouping grouping, boolean sharded, int threads, long maxMemory) {
+        this.grouping = grouping;
+        this.sharded = sharded;
+        this.threads = threads;
+        this.maxMemory = maxMemory;
+    }
+
+
+    /**
+     * @return the maximum number of threads to render and write with
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return {@code true} if every group is written to its own file, {@code false} otherwise
+     */
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Groups the {@code lines} by their {@link Grouping} key and sorts them within their group.
+     *
+     * @param lines the converted lines
+     * @return the sorted lines by key, in order of the keys
+     */
+    public SortedMap<String, List<String>> group(List<String> lines) {
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+            SortedMap<String, List<String>> groups = new TreeMap<>();
+            for (String line : lines) {
+                groups.computeIfAbsent(grouping.key(line), k -> new ArrayList<>()).add(line);
+            }
+            groups.values().forEach(group -> group.sort(null));
+            return groups;
+        }
+    }
+
+    /**
+     * Sorts the {@code lines} by group and separates the groups with empty lines.
+     *
+     * @param lines the converted lines
+     * @return a new {@link List} with all lines, sorted and separated
+     */
+    public List<String> arrange(List<String> lines) {
+        SortedMap<String, List<String>> groups = group(lines);
+
+        List<String> arranged = new ArrayList<>(lines.size() + groups.size());
+        for (List<String> group : groups.values()) {
+            if (!arranged.isEmpty()) {
+                arranged.add("");
+            }
+            arranged.addAll(group);
+        }
+        return arranged;
+    }
+
+    /**
+     * Arranges the {@code lines} and writes them to {@code outputFile}, or to one file per group next to it if
+     * sharded. Files whose content wouldn't change aren't written again, see {@link Diff}.
+     *
+     * @param lines      the converted lines
+     * @param outputFile path to the output file
+     * @param manifest   the {@link Manifest} of the last run, or {@code null}
+     * @return the paths of all output files
+     */
+    public List<String> write(List<String> lines, String outputFile, Manifest manifest) {
+        if (!sharded) {
+            writeIfChanged(arrange(lines), outputFile, manifest);
+            return List.of(outputFile);
+        }
+
+        Map<String, List<String>> shards = new LinkedHashMap<>();
+        group(lines).forEach((key, group) -> shards.put(shardFileName(outputFile, key), group));
+        warnAboutStaleShards(outputFile, shards.keySet());
+
+        List<String> shardFiles = new ArrayList<>(shards.keySet());
+        SharedService.forEach(shardFiles, threads, shardFile -> writeIfChanged(shards.get(shardFile), shardFile, manifest));
+        return shardFiles;
+    }
+
+    /**
+     * @return a new {@link ExternalSort} to collect the converted lines in, within the memory budget of this layout
+     */
+    public ExternalSort newSort() {
+        return new ExternalSort(grouping, maxMemory);
+    }
+
+    /**
+     * Writes the lines collected in {@code sort} like {@link #write(List, String, Manifest)}. If they were spilled to
+     * run files, they are merged straight into the output file(s), inserting the empty lines between the groups while
+     * merging.
+     *
+     * @param sort       the {@link ExternalSort} with the converted lines
+     * @param outputFile path to the output file
+     * @param manifest   the {@link Manifest} of the last run, or {@code null}
+     * @return the paths of all output files
+     * @throws UncheckedIOException if a run file can't be read
+     */
+    public List<String> write(ExternalSort sort, String outputFile, Manifest manifest) {
+        if (!sort.hasSpilled()) {
+            return write(sort.lines(), outputFile, manifest);
+        }
+
+        log.info("Merging {} lines spilled to temporary files", sort.size());
+        try (MergedWriter writer = new MergedWriter(outputFile, manifest);
+             Stats.Timer ignored = Stats.time(Stats.Phase.WRITE)) {
+            sort.merge(writer);
+            writer.finish();
+            if (sharded) {
+                warnAboutStaleShards(outputFile, new HashSet<>(writer.files));
+            }
+            return writer.files;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the file a group is written to if sharded, e.g. "json_Number.items" for the group "Number" and the
+     * output file "json.items".
+     *
+     * @param outputFile path to the output file
+     * @param key        the {@link Grouping} key of the group
+     * @return the path of the file for the group
+     */
+    public static String shardFileName(String outputFile, String key) {
+        String name = key.isEmpty() ? UNGROUPED : key.replaceAll("[^\\w-]", "_");
+        return baseName(outputFile) + "_" + name + ".items";
+    }
+
+
+    private static boolean writeIfChanged(List<String> lines, String fileName, Manifest manifest) {
+        boolean written = false;
+        Diff.Outcome outcome = SharedService.updateFile(lines, fileName);
+        logOutcome(outcome, lines.size(), fileName);
+        if (outcome == Diff.Outcome.WRITTEN) {
+            written = true;
+        }
+
+        if (manifest != null) {
+            manifest.recordFile(fileName);
+        }
+        return written;
+    }
+
+    private static void logOutcome(Diff.Outcome outcome, long lines, String fileName) {
+        if (outcome == Diff.Outcome.UNCHANGED) {
+            log.info("File {} is already up to date", fileName);
+        } else if (outcome == Diff.Outcome.PLANNED) {
+            log.info("Would write {} lines to file {}", lines, fileName);
+        } else if (outcome == Diff.Outcome.WRITTEN) {
+            log.info("Written {} lines to file {}!", lines, fileName);
+        }
+    }
+
+    /**
+     * Warns about shard files of an earlier run whose group doesn't exist anymore. They are not deleted, as they can't
+     * be told apart from other files with the same prefix, but openHAB would load their items twice.
+     */
+    private static void warnAboutStaleShards(String outputFile, Set<String> shardFiles) {
+        File base = new File(baseName(outputFile)).getAbsoluteFile();
+        String prefix = base.getName() + "_";
+        File[] files = base.getParentFile().listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".items"));
+        for (File file : Objects.requireNonNullElse(files, new File[0])) {
+            if (shardFiles.stream().noneMatch(shardFile -> new File(shardFile).getAbsoluteFile().equals(file))) {
+                log.warn("File {} wasn't written by this run, remove it if it contains outdated items", file);
+            }
+        }
+    }
+
+    private static String baseName(String outputFile) {
+        return outputFile.endsWith(".items") ? outputFile.substring(0, outputFile.length() - ".items".length()) : outputFile;
+    }
+
+
+    /**
+     * Writes the merged lines into the output file, or into one file per group if sharded, separating the groups with
+     * empty lines.
+     */
+    private final class MergedWriter implements ExternalSort.Sink, Closeable {
+        private final String outputFile;
+        private final Manifest manifest;
+        private final List<String> files = new ArrayList<>();
+        private AtomicFileWriter writer;
+        private String fileName;
+        private String key;
+
+
+        private MergedWriter(String outputFile, Manifest manifest) {
+            this.outputFile = outputFile;
+            this.manifest = manifest;
+        }
+
+
+        @Override
+        public void accept(String lineKey, String line) throws IOException {
+            if (!lineKey.equals(key)) {
+                if (sharded) {
+                    finish();
+                } else if (writer != null) {
+                    writer.writeLine("");
+                }
+                key = lineKey;
+            }
+            if (writer == null) {
+                fileName = sharded ? shardFileName(outputFile, key) : outputFile;
+                writer = AtomicFileWriter.open(fileName);
+                files.add(fileName);
+            }
+            writer.writeLine(line);
+        }
+
+        /**
+         * Commits the current file, if its content changed.
+         */
+        private void finish() throws IOException {
+            if (writer == null) {
+                return;
+            }
+            Diff.Outcome outcome = Diff.commit(writer, fileName);
+            logOutcome(outcome, writer.getLines(), fileName);
+            writer.close();
+            writer = null;
+            if (manifest != null) {
+                manifest.recordFile(fileName);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package voruti.json2config.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the content hashes of all files and JsonDB entries of the last run, so unchanged work can be skipped. The
+ * manifest is stored next to the output file.
+ * <p>
+ * During a run, files are always compared with the hashes of the last run: files recorded by one phase are only hashed
+ * when saving, so a later phase still sees that the file changed since the last run.
+ *
+ * @author voruti
+ */
+@Slf4j
+public class Manifest {
+
+    public static final String FILE_SUFFIX = ".manifest.json";
+
+    private static final Gson GSON = new Gson();
+
+    private transient Path path;
+    private transient ConcurrentMap<String, String> recorded = new ConcurrentHashMap<>();
+    private ConcurrentMap<String, String> files = new ConcurrentHashMap<>();
+    private Map<Type, Map<String, Entry>> entries = new HashMap<>();
+
+
+    /**
+     * Loads the manifest stored next to {@code outputFile}. A missing or unreadable manifest results in an empty one,
+     * so everything is processed.
+     *
+     * @param outputFile path to the output file
+     * @return the loaded {@link Manifest}
+     */
+    public static Manifest load(String outputFile) {
+        Path path = Paths.get(outputFile + FILE_SUFFIX);
+
+        Manifest manifest = null;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            manifest = GSON.fromJson(reader, Manifest.class);
+        } catch (NoSuchFileException e) {
+            log.debug("No manifest at path={}", path);
+        } catch (IOException | JsonParseException e) {
+            log.warn("Ignoring unreadable manifest {}: {}", path, e.toString());
+        }
+        if (manifest == null) {
+            manifest = new Manifest();
+        }
+        if (manifest.files == null) {
+            manifest.files = new ConcurrentHashMap<>();
+        }
+        if (manifest.entries == null) {
+            manifest.entries = new HashMap<>();
+        }
+        manifest.path = path;
+        manifest.recorded = new ConcurrentHashMap<>();
+
+        return manifest;
+    }
+
+    /**
+     * Hashes all recorded files and stores the manifest next to the output file.
+     */
+    public void save() {
+        if (Diff.isDryRun()) {
+            log.debug("Not saving manifest {} in dry-run mode", path);
+            return;
+        }
+        recorded.forEach((key, fileName) -> {
+            String hash = hashFile(fileName);
+            if (hash != null) {
+                files.put(key, hash);
+            } else {
+                files.remove(key);
+            }
+        });
+        recorded.clear();
+        try (AtomicFileWriter writer = AtomicFileWriter.open(path.toString())) {
+            GSON.toJson(this, writer);
+            writer.commit();
+        } catch (IOException e) {
+            log.error("{} at writing manifest {}", e, path);
+        }
+    }
+
+    /**
+     * Checks if {@code fileName} still has the content recorded by {@link #recordFile(String)} in the last run. Files
+     * recorded during this run don't count until the manifest is saved.
+     *
+     * @param fileName the file to check
+     * @return {@code true} if the file is unchanged since the last run, {@code false} otherwise
+     */
+    public boolean isUnchanged(String fileName) {
+        String recorded = files.get(key(fileName));
+        return recorded != null && recorded.equals(hashFile(fileName));
+    }
+
+    /**
+     * Records {@code fileName} for the next run. Its content is hashed when the manifest is saved, so it includes the
+     * changes of all later phases of this run.
+     *
+     * @param fileName the file to record
+     */
+    public void recordFile(String fileName) {
+        recorded.put(key(fileName), fileName);
+    }
+
+    /**
+     * Returns the line rendered from the JsonDB entry {@code key} during the last run, if the entry is unchanged.
+     *
+     * @param type the {@link Type} of the entry
+     * @param key  the key (UID) of the entry
+     * @param hash the current hash of the entry
+     * @return the cached line, or {@code null} if the entry changed
+     */
+    public String cachedLine(Type type, String key, String hash) {
+        Entry entry = entries.getOrDefault(type, Map.of()).get(key);
+        return entry != null && entry.hash.equals(hash) ? entry.line : null;
+    }
+
+    /**
+     * Replaces all cached entries of {@code type}.
+     *
+     * @param type        the {@link Type} of the entries
+     * @param typeEntries the hashes and rendered lines by key (UID)
+     */
+    public void cacheEntries(Type type, Map<String, Entry> typeEntries) {
+        entries.put(type, typeEntries);
+    }
+
+
+    private static String key(String fileName) {
+        return SharedService.path(fileName).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Hashes the content of {@code fileName} with SHA-256.
+     *
+     * @param fileName the file to hash
+     * @return the Base64 encoded hash, or {@code null} if the file can't be read
+     */
+    private static String hashFile(String fileName) {
+        MessageDigest digest = newDigest();
+        try (InputStream in = Files.newInputStream(SharedService.path(fileName))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+
+    /**
+     * The hash of a JsonDB entry and the line rendered from it.
+     */
+    public static class Entry {
+        private final String hash;
+        private final String line;
+
+
+        // for Gson, which would otherwise need Unsafe to create instances (not available in native images):
+        private Entry() {
+            this(null, null);
+        }
+
+        public Entry(String hash, String line) {
+            this.hash = hash;
+            this.line = line;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package voruti.json2config.service;
 
 import lombok.extern.slf4j.Slf4j;
 import voruti.json2config.model.IAppendable;
-import voruti.json2config.model.json.JsonMetadata;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * @author sbholmes
@@ -27,21 +27,82 @@ public class MetadataAppender {
      * @param directory    the directory in which to search for ".items" files
      */
     public static void start(String metadataFile, String directory) {
+        start(metadataFile, directory, 1);
+    }
+
+    /**
+     * Appends the metadata from {@code metadataFile} to all ".items" files
+     * in the {@code directory}.
+     *
+     * @param metadataFile path to the file which contains the metadata in
+     *                     JSON format
+     * @param directory    the directory in which to search for ".items" files
+     * @param threads      the maximum number of ".items" files to process in parallel
+     */
+    public static void start(String metadataFile, String directory, int threads) {
+        start(metadataFile, directory, threads, null);
+    }
+
+    /**
+     * Appends the metadata from {@code metadataFile} to all ".items" files in the {@code directory}. With a
+     * {@code manifest}, files which are unchanged since the last run are skipped if the metadata are unchanged, too.
+     *
+     * @param metadataFile path to the file which contains the metadata in JSON format
+     * @param directory    the directory in which to search for ".items" files
+     * @param threads      the maximum number of ".items" files to process in parallel
+     * @param manifest     the {@link Manifest} of the last run, or {@code null} to process everything
+     */
+    public static void start(String metadataFile, String directory, int threads, Manifest manifest) {
+        start(metadataFile, directory, threads, manifest, null);
+    }
+
+    /**
+     * Appends the metadata from {@code metadataFile} like {@link #start(String, String, int, Manifest)}, but only the
+     * ones of the {@code itemNames}.
+     *
+     * @param metadataFile path to the file which contains the metadata in JSON format
+     * @param directory    the directory in which to search for ".items" files
+     * @param threads      the maximum number of ".items" files to process in parallel
+     * @param manifest     the {@link Manifest} of the last run, or {@code null} to process everything
+     * @param itemNames    the names of the items to append to (see {@link Filter#acceptedItemNames(String)}), or
+     *                     {@code null} for all items
+     */
+    public static void start(String metadataFile, String directory, int threads, Manifest manifest,
+                             Set<String> itemNames) {
         log.debug("Starting MetadataAppender with metadataFile={}, directory={}", metadataFile, directory);
 
+        // the files don't tell whether the filters changed:
+        boolean unchanged = manifest != null && Filter.active().isEmpty() && manifest.isUnchanged(metadataFile);
+        if (unchanged && Appender.findItemsFilesInDir(directory).stream().allMatch(manifest::isUnchanged)) {
+            log.info("File {} and all .items files are unchanged since the last run, skipping", metadataFile);
+            return;
+        }
+
         try {
-            // open file:
-            String content = SharedService.openFileToString(metadataFile);
-            // map to list of metadata:
-            List<IAppendable> metadataList = SharedService.jsonToConvertibleMap(content, Type.METADATA).values().stream()
-                    .map(JsonMetadata.class::cast)
-                    .collect(Collectors.toList());
-            log.info("Found {} metadata", metadataList.size());
-            log.trace("metadataList={}", metadataList);
-
-            Appender.searchAndAppend(directory, metadataList);
+            Appender.searchAndAppend(directory, Appender.onlyItems(readMetadata(metadataFile), itemNames), List.of(),
+                    threads, manifest, unchanged);
+            if (manifest != null) {
+                manifest.recordFile(metadataFile);
+            }
         } catch (IOException e) {
             log.error(Constants.LOG_CANT_OPEN_FILE, metadataFile);
         }
     }
+
+    /**
+     * Reads the metadata from {@code metadataFile}.
+     *
+     * @param metadataFile path to the file which contains the metadata in JSON format
+     * @return a {@link List} with all metadata
+     * @throws IOException if the file can't be opened
+     */
+    public static List<IAppendable> readMetadata(String metadataFile) throws IOException {
+        // stream file into list of metadata:
+        List<IAppendable> metadataList = new ArrayList<>();
+        SharedService.streamJsonFile(metadataFile, Type.METADATA, (key, convertible) -> metadataList.add((IAppendable) convertible));
+        log.info("Found {} metadata", metadataList.size());
+        log.trace("metadataList={}", metadataList);
+
+        return metadataList;
+    }
 }
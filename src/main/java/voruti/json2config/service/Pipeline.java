@@ -0,0 +1,220 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.IConvertible;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Converts a JsonDB file in three concurrent stages: the calling thread parses the entries, a pool of threads renders
+ * them and a single thread passes the rendered lines on. The stages exchange chunks of entries through bounded
+ * queues, so a fast stage waits for a slow one instead of piling up entries, and memory stays flat.
+ * <p>
+ * The lines arrive in no particular order; they are sorted afterwards anyway, see {@link Layout}.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Pipeline {
+
+    /**
+     * The number of entries handed from stage to stage at once.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * The number of chunks each queue holds per render thread.
+     */
+    private static final int QUEUED_CHUNKS = 4;
+
+    private static final long OFFER_MILLIS = 100;
+
+
+    private Pipeline() {
+    }
+
+
+    /**
+     * Streams {@code jsonFile}, renders its entries on {@code threads} threads and passes the rendered lines to the
+     * {@code sink}, which is only called from a single thread.
+     *
+     * @param jsonFile the path/name of the JsonDB file
+     * @param type     the {@link Type} of the entries in the file
+     * @param threads  the number of threads to render with
+     * @param renderer renders an entry into a line, with a buffer reused by its thread
+     * @param sink     receives the rendered lines
+     * @throws IOException if the file can't be opened or read
+     */
+    public static void run(String jsonFile, Type type, int threads, Renderer renderer, Consumer<String> sink)
+            throws IOException {
+        BlockingQueue<Chunk> parsed = new ArrayBlockingQueue<>(threads * QUEUED_CHUNKS);
+        BlockingQueue<Chunk> rendered = new ArrayBlockingQueue<>(threads * QUEUED_CHUNKS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Void>> stages = new ArrayList<>();
+        log.debug("Converting {} in a pipeline with {} render threads", jsonFile, threads);
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                stages.add(completion.submit(() -> render(parsed, rendered, renderer)));
+            }
+            stages.add(completion.submit(() -> collect(rendered, threads, sink)));
+
+            Chunk[] chunk = {new Chunk()};
+            SharedService.streamJsonFile(jsonFile, type, (key, convertible) -> {
+                chunk[0].add(key, convertible);
+                if (chunk[0].size == CHUNK_SIZE) {
+                    put(parsed, chunk[0], stages);
+                    chunk[0] = new Chunk();
+                }
+            });
+            if (chunk[0].size > 0) {
+                put(parsed, chunk[0], stages);
+            }
+            // after a failure, the stages are interrupted instead:
+            for (int i = 0; i < threads; i++) {
+                put(parsed, Chunk.END, stages);
+            }
+            await(completion, stages);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while converting " + jsonFile);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private static Void render(BlockingQueue<Chunk> parsed, BlockingQueue<Chunk> rendered, Renderer renderer)
+            throws InterruptedException {
+        StringBuilder buffer = new StringBuilder(256);
+        Chunk chunk;
+        while ((chunk = parsed.take()) != Chunk.END) {
+            try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+                for (int i = 0; i < chunk.size; i++) {
+                    buffer.setLength(0);
+                    chunk.lines[i] = renderer.render(chunk.keys[i], chunk.convertibles[i], buffer);
+                    chunk.convertibles[i] = null;
+                }
+            }
+            rendered.put(chunk);
+        }
+        rendered.put(Chunk.END);
+        return null;
+    }
+
+    private static Void collect(BlockingQueue<Chunk> rendered, int threads, Consumer<String> sink)
+            throws InterruptedException {
+        int ended = 0;
+        while (ended < threads) {
+            Chunk chunk = rendered.take();
+            if (chunk == Chunk.END) {
+                ended++;
+                continue;
+            }
+            for (int i = 0; i < chunk.size; i++) {
+                sink.accept(chunk.lines[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts the {@code chunk} into the {@code queue}, giving up if a stage failed, as it might never take it.
+     */
+    private static void put(BlockingQueue<Chunk> queue, Chunk chunk, List<Future<Void>> stages) {
+        try {
+            while (!queue.offer(chunk, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                for (Future<Void> stage : stages) {
+                    if (stage.isDone()) {
+                        // a stage only ends early on failure:
+                        rethrow(stage);
+                        throw new IllegalStateException("A stage of the pipeline ended early");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while converting"));
+        }
+    }
+
+    /**
+     * Waits for all {@code stages} in the order they end. The first failure cancels the others, as the stages before
+     * and after the failed one might wait for it forever, and is rethrown.
+     */
+    private static void await(CompletionService<Void> completion, List<Future<Void>> stages)
+            throws InterruptedException {
+        for (int i = 0; i < stages.size(); i++) {
+            try {
+                rethrow(completion.take());
+            } catch (RuntimeException e) {
+                stages.forEach(stage -> stage.cancel(true));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits for the {@code stage} and rethrows its failure.
+     */
+    private static void rethrow(Future<Void> stage) throws InterruptedException {
+        try {
+            stage.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+
+    /**
+     * Renders a parsed entry into a line.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+
+        /**
+         * @param key         the key of the entry
+         * @param convertible the parsed entry
+         * @param buffer      an empty buffer the thread can render into
+         * @return the rendered line
+         */
+        String render(String key, IConvertible convertible, StringBuilder buffer);
+    }
+
+    /**
+     * Entries handed from stage to stage: parsed ones first, then rendered into lines in place.
+     */
+    private static final class Chunk {
+        private static final Chunk END = new Chunk();
+
+        private final String[] keys = new String[CHUNK_SIZE];
+        private final IConvertible[] convertibles = new IConvertible[CHUNK_SIZE];
+        private final String[] lines = new String[CHUNK_SIZE];
+        private int size;
+
+
+        private void add(String key, IConvertible convertible) {
+            keys[size] = key;
+            convertibles[size] = convertible;
+            size++;
+        }
+    }
+}
@@ -1,31 +1,67 @@
 package voruti.json2config.service;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import lombok.extern.slf4j.Slf4j;
 import voruti.json2config.model.IConvertible;
 import voruti.json2config.model.json.JsonChannelLink;
 import voruti.json2config.model.json.JsonItem;
 import voruti.json2config.model.json.JsonMetadata;
+import voruti.json2config.model.json.JsonThing;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Slf4j
 public final class SharedService {
 
     private static final Gson GSON = new Gson();
+    private static final Map<Type, java.lang.reflect.Type> MAP_TYPES = new EnumMap<>(Map.of(
+            Type.ITEM, mapType(Type.ITEM),
+            Type.THING, mapType(Type.THING),
+            Type.CHANNEL, mapType(Type.CHANNEL),
+            Type.METADATA, mapType(Type.METADATA)));
 
 
     private SharedService() {
     }
 
 
+    /**
+     * Returns the {@link Path} of {@code fileName}, which may also be the URI of an entry in a backup zip (see
+     * {@link BackupSource}).
+     *
+     * @param fileName the path/name of a file or the {@code jar:} URI of a zip entry
+     * @return the {@link Path}
+     */
+    public static Path path(String fileName) {
+        return fileName.startsWith("jar:") ? Paths.get(URI.create(fileName)) : Paths.get(fileName);
+    }
+
     /**
      * Open the file with {@code fileName} and return its content as {@link String}.
      *
@@ -34,9 +70,9 @@ public final class SharedService {
      * @throws IOException if the file can't be opened
      */
     public static String openFileToString(String fileName) throws IOException {
-        Path path = Paths.get(fileName);
+        Path path = path(fileName);
         log.debug("Reading lines at path={}", path);
-        return String.join("\n", Files.readAllLines(path, Charset.defaultCharset()));
+        return String.join("\n", Files.readAllLines(path, StandardCharsets.UTF_8));
     }
 
     /**
@@ -47,32 +83,240 @@ public final class SharedService {
      * @return a {@link Map} with {@link String} as key and {@link IConvertible} as value
      */
     public static Map<String, IConvertible> jsonToConvertibleMap(String json, Type type) {
-        java.lang.reflect.Type mapType = null;
+        java.lang.reflect.Type mapType = MAP_TYPES.get(type);
+        return GSON.fromJson(json, mapType == null ? mapType(type) : mapType);
+    }
+
+    /**
+     * Streams the JsonDB file {@code fileName} entry by entry to the {@code consumer}, without reading the whole file
+     * into memory first.
+     *
+     * @param fileName the path/name of the JsonDB file to open
+     * @param type     the {@link Type} of the entries in the file
+     * @param consumer receives the key and the parsed {@link IConvertible} of every entry
+     * @throws IOException if the file can't be opened or read
+     * @see #streamJson(Reader, Type, BiConsumer)
+     */
+    public static void streamJsonFile(String fileName, Type type, BiConsumer<String, IConvertible> consumer) throws IOException {
+        streamJsonFile(fileName, type, Filter.active(), consumer);
+    }
+
+    /**
+     * Streams the JsonDB file {@code fileName} like {@link #streamJsonFile(String, Type, BiConsumer)}, but skips the
+     * entries rejected by the given {@code filter} instead of the active one.
+     *
+     * @param fileName the path/name of the JsonDB file to open
+     * @param type     the {@link Type} of the entries in the file
+     * @param filter   the {@link Filter} selecting the entries
+     * @param consumer receives the key and the parsed {@link IConvertible} of every entry
+     * @throws IOException if the file can't be opened or read
+     */
+    public static void streamJsonFile(String fileName, Type type, Filter filter, BiConsumer<String, IConvertible> consumer)
+            throws IOException {
+        Path path = path(fileName);
+        log.debug("Streaming entries at path={}", path);
+        Stats.count(Stats.Counter.FILES_READ, 1);
+        if (Stats.isEnabled()) {
+            Stats.count(Stats.Counter.BYTES_READ, Files.size(path));
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            streamJson(reader, type, filter, consumer);
+        }
+    }
+
+    /**
+     * Walks the top-level JsonDB object in {@code reader} with a {@link JsonReader} and passes every entry to the
+     * {@code consumer} as soon as it is parsed, so only one entry is held in memory at a time. Entries rejected by the
+     * {@link Filter#active() active Filter} are skipped, if possible without parsing them.
+     *
+     * @param reader   the {@link Reader} providing the JSON
+     * @param type     the {@link Type} of the entries in the {@code reader}
+     * @param consumer receives the key and the parsed {@link IConvertible} of every entry
+     * @throws IOException if the {@code reader} can't be read
+     */
+    public static void streamJson(Reader reader, Type type, BiConsumer<String, IConvertible> consumer) throws IOException {
+        streamJson(reader, type, Filter.active(), consumer);
+    }
+
+    /**
+     * Walks the top-level JsonDB object in {@code reader} like {@link #streamJson(Reader, Type, BiConsumer)}, but
+     * skips the entries rejected by the given {@code filter} instead of the active one.
+     *
+     * @param reader   the {@link Reader} providing the JSON
+     * @param type     the {@link Type} of the entries in the {@code reader}
+     * @param filter   the {@link Filter} selecting the entries
+     * @param consumer receives the key and the parsed {@link IConvertible} of every entry
+     * @throws IOException if the {@code reader} can't be read
+     */
+    public static void streamJson(Reader reader, Type type, Filter filter, BiConsumer<String, IConvertible> consumer)
+            throws IOException {
+        Class<? extends IConvertible> convertibleClass = convertibleClass(type);
+
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.PARSE)) {
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String key = jsonReader.nextName();
+                if (!filter.acceptsKey(type, key)) {
+                    jsonReader.skipValue();
+                    Stats.count(Stats.Counter.ENTRIES_SKIPPED, 1);
+                    continue;
+                }
+                IConvertible convertible = GSON.fromJson(jsonReader, convertibleClass);
+                Stats.count(Stats.Counter.ENTRIES_PARSED, 1);
+                if (!filter.accepts(type, convertible)) {
+                    Stats.count(Stats.Counter.ENTRIES_SKIPPED, 1);
+                    continue;
+                }
+                consumer.accept(key, convertible);
+            }
+            jsonReader.endObject();
+        }
+    }
+
+    /**
+     * Streams the JsonDB file {@code fileName} entry by entry to the {@code consumer} as raw {@link JsonElement
+     * JsonElements}, so entries can be compared before they are bound to a model.
+     *
+     * @param fileName the path/name of the JsonDB file to open
+     * @param consumer receives the key and the {@link JsonElement} of every entry
+     * @throws IOException if the file can't be opened or read
+     */
+    public static void streamJsonElementsFile(String fileName, BiConsumer<String, JsonElement> consumer) throws IOException {
+        streamJsonElementsFile(fileName, key -> true, consumer);
+    }
+
+    /**
+     * Streams the JsonDB file {@code fileName} like {@link #streamJsonElementsFile(String, BiConsumer)}, but skips the
+     * entries whose key is rejected by {@code keyFilter} without parsing them.
+     *
+     * @param fileName  the path/name of the JsonDB file to open
+     * @param keyFilter decides by the key of an entry whether it is needed
+     * @param consumer  receives the key and the {@link JsonElement} of every needed entry
+     * @throws IOException if the file can't be opened or read
+     */
+    public static void streamJsonElementsFile(String fileName, Predicate<String> keyFilter,
+                                              BiConsumer<String, JsonElement> consumer) throws IOException {
+        Path path = path(fileName);
+        log.debug("Streaming elements at path={}", path);
+        Stats.count(Stats.Counter.FILES_READ, 1);
+        if (Stats.isEnabled()) {
+            Stats.count(Stats.Counter.BYTES_READ, Files.size(path));
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             Stats.Timer ignored = Stats.time(Stats.Phase.PARSE)) {
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String key = jsonReader.nextName();
+                if (!keyFilter.test(key)) {
+                    jsonReader.skipValue();
+                    Stats.count(Stats.Counter.ENTRIES_SKIPPED, 1);
+                    continue;
+                }
+                consumer.accept(key, JsonParser.parseReader(jsonReader));
+                Stats.count(Stats.Counter.ENTRIES_PARSED, 1);
+            }
+            jsonReader.endObject();
+        }
+    }
+
+    /**
+     * Binds a single JsonDB entry, e.g. one streamed by {@link #streamJsonElementsFile(String, BiConsumer)}.
+     *
+     * @param element the {@link JsonElement} of the entry
+     * @param type    the {@link Type} of the entry
+     * @return the parsed {@link IConvertible}
+     */
+    public static IConvertible fromJsonElement(JsonElement element, Type type) {
+        return GSON.fromJson(element, convertibleClass(type));
+    }
+
+    /**
+     * Hashes the {@code content} with SHA-256.
+     *
+     * @param content the content to hash
+     * @return the Base64 encoded hash
+     */
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns the class of the JsonDB model for the {@code type}.
+     *
+     * @param type the {@link Type} of the entries
+     * @return the {@link IConvertible} implementation for the {@code type}
+     */
+    private static Class<? extends IConvertible> convertibleClass(Type type) {
         switch (type) {
             case ITEM:
-                mapType = new TypeToken<Map<String, JsonItem>>() {
-                }.getType();
-                break;
+                return JsonItem.class;
             case THING:
-                // mapType =  new TypeToken<Map<String, JsonThing>>() {}.getType();
-                break;
+                return JsonThing.class;
             case CHANNEL:
-                //noinspection DuplicateBranchesInSwitch
-                mapType = new TypeToken<Map<String, JsonChannelLink>>() {
-                }.getType();
-                break;
+                return JsonChannelLink.class;
             case METADATA:
-                //noinspection DuplicateBranchesInSwitch
-                mapType = new TypeToken<Map<String, JsonMetadata>>() {
-                }.getType();
-                break;
+                return JsonMetadata.class;
+            default:
+                throw new IllegalArgumentException("Unsupported type " + type);
         }
+    }
 
-        return GSON.fromJson(json, mapType);
+    /**
+     * Returns the type of a {@link Map} from keys to the JsonDB model for the {@code type}.
+     *
+     * @param type the {@link Type} of the entries
+     * @return the parameterized {@link Map} type
+     */
+    private static java.lang.reflect.Type mapType(Type type) {
+        return TypeToken.getParameterized(Map.class, String.class, convertibleClass(type)).getType();
     }
 
     /**
-     * Writes every entry of {@code lines} in a separate line to {@code fileName}.
+     * Runs the {@code task} for every file in {@code files}, using up to {@code threads} workers.
+     *
+     * @param files   the files to process
+     * @param threads the maximum number of files to process in parallel
+     * @param task    the task to run for each file
+     * @param <T>     the result type of the {@code task}
+     * @return the results of the {@code task}, in the order of {@code files}
+     */
+    public static <T> List<T> forEach(List<String> files, int threads, Function<String, T> task) {
+        if (threads <= 1 || files.size() <= 1) {
+            return files.stream()
+                    .map(task)
+                    .collect(Collectors.toList());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<T>> futures = executor.invokeAll(files.stream()
+                    .map(file -> (Callable<T>) () -> task.apply(file))
+                    .collect(Collectors.toList()));
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing files", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to process files", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes every entry of {@code lines} in a separate line to {@code fileName}. The file is replaced atomically, see
+     * {@link AtomicFileWriter}, and only if its content changes, see {@link Diff}.
      *
      * @param lines    the lines to write into the file
      * @param fileName the file name of the file to write
@@ -80,21 +324,31 @@ public final class SharedService {
      * otherwise
      */
     public static boolean writeLinesToFile(List<String> lines, String fileName) {
-        boolean returnVal = false;
-
-        if (!lines.isEmpty()) {
-            // writing to file:
-            try {
-                log.debug("Writing lines to file={}", fileName);
-                Files.write(Paths.get(fileName), lines, Charset.defaultCharset());
-                returnVal = true;
-            } catch (IOException e) {
-                log.error("{} at writing file with lines={}", e, lines);
-            }
-        } else {
+        Diff.Outcome outcome = updateFile(lines, fileName);
+        return outcome != null && outcome != Diff.Outcome.FAILED;
+    }
+
+    /**
+     * Updates {@code fileName} to contain every entry of {@code lines} in a separate line, see
+     * {@link Diff#update(String, Diff.Content)}.
+     *
+     * @param lines    the lines the file should contain
+     * @param fileName the file name of the file to update
+     * @return the {@link Diff.Outcome}, or {@code null} if there are no {@code lines}
+     */
+    public static Diff.Outcome updateFile(List<String> lines, String fileName) {
+        if (lines.isEmpty()) {
             log.warn("No objects in List lines={}", lines);
+            return null;
         }
 
-        return returnVal;
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.WRITE)) {
+            log.debug("Writing lines to file={}", fileName);
+            return Diff.update(fileName, out -> {
+                for (String line : lines) {
+                    out.append(line).append(System.lineSeparator());
+                }
+            });
+        }
     }
 }
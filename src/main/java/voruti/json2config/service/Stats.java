@@ -0,0 +1,253 @@
+package voruti.json2config.service;
+
+import com.google.gson.GsonBuilder;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time and allocated memory spent in each {@link Phase} and some {@link Counter Counters} of a run. The
+ * times are exclusive: a phase started within another one pauses the outer phase. Phases running in parallel on
+ * several threads are summed up.
+ * <p>
+ * Every phase is also emitted as a JFR event ({@code voruti.json2config.Phase}) while a recording is running. Collecting
+ * is disabled by default, in which case {@link #time(Phase)} returns a no-op {@link Timer}.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class Stats {
+
+    /**
+     * The phases of a run.
+     */
+    public enum Phase {
+        READ, PARSE, MATCH, RENDER, WRITE
+    }
+
+    /**
+     * The things counted during a run.
+     */
+    public enum Counter {
+        FILES_READ, BYTES_READ, ENTRIES_PARSED, ENTRIES_SKIPPED, ENTRIES_MATCHED, LINES_RENDERED, FILES_WRITTEN, BYTES_WRITTEN
+    }
+
+    private static final Timer NO_OP = new Timer(null);
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+    private static final Map<Phase, LongAdder> NANOS = adders(Phase.class);
+    private static final Map<Phase, LongAdder> ALLOCATED = adders(Phase.class);
+    private static final Map<Phase, LongAdder> INVOCATIONS = adders(Phase.class);
+    private static final Map<Counter, LongAdder> COUNTERS = adders(Counter.class);
+
+    private static volatile boolean enabled;
+    private static long startNanos;
+
+
+    private Stats() {
+    }
+
+
+    /**
+     * Resets all statistics and starts collecting.
+     */
+    public static synchronized void enable() {
+        NANOS.values().forEach(LongAdder::reset);
+        ALLOCATED.values().forEach(LongAdder::reset);
+        INVOCATIONS.values().forEach(LongAdder::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+        startNanos = System.nanoTime();
+        enabled = true;
+    }
+
+    /**
+     * Stops collecting, e.g. so a test doesn't leave collecting on for the following ones.
+     */
+    static synchronized void disable() {
+        enabled = false;
+    }
+
+    /**
+     * @return {@code true} if statistics are collected, {@code false} otherwise
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing the {@code phase} on the current thread; use in a try-with-resources statement.
+     *
+     * @param phase the {@link Phase} to time
+     * @return the started {@link Timer}
+     */
+    public static Timer time(Phase phase) {
+        if (!enabled) {
+            return NO_OP;
+        }
+        Timer timer = new Timer(phase);
+        timer.start();
+        return timer;
+    }
+
+    /**
+     * Adds {@code amount} to the {@code counter}.
+     *
+     * @param counter the {@link Counter} to increase
+     * @param amount  the amount to add
+     */
+    public static void count(Counter counter, long amount) {
+        if (enabled) {
+            COUNTERS.get(counter).add(amount);
+        }
+    }
+
+    /**
+     * Creates a report of everything collected since {@link #enable()}.
+     *
+     * @return the report, ready to be serialized to JSON
+     */
+    public static Map<String, Object> report() {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("millis", NANOS.get(phase).sum() / 1_000_000.0);
+            values.put("allocatedBytes", ALLOCATED.get(phase).sum());
+            values.put("invocations", INVOCATIONS.get(phase).sum());
+            phases.put(phase.name().toLowerCase(), values);
+        }
+        Map<String, Object> counters = new LinkedHashMap<>();
+        COUNTERS.forEach((counter, adder) -> counters.put(counter.name().toLowerCase(), adder.sum()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totalMillis", (System.nanoTime() - startNanos) / 1_000_000.0);
+        report.put("allocationMeasured", THREAD_MX_BEAN != null);
+        report.put("phases", phases);
+        report.put("counters", counters);
+        return report;
+    }
+
+    /**
+     * Writes the {@link #report()} as JSON to {@code fileName} and logs a summary.
+     *
+     * @param fileName the file to write the report to
+     */
+    public static void writeReport(String fileName) {
+        Map<String, Object> report = report();
+        log.info("Stats: {}", report);
+
+        try (AtomicFileWriter writer = AtomicFileWriter.open(fileName)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+            writer.commit();
+        } catch (IOException e) {
+            log.error("{} at writing stats report {}", e, fileName);
+        }
+    }
+
+
+    private static <K extends Enum<K>> Map<K, LongAdder> adders(Class<K> keyClass) {
+        Map<K, LongAdder> adders = new EnumMap<>(keyClass);
+        for (K key : keyClass.getEnumConstants()) {
+            adders.put(key, new LongAdder());
+        }
+        return adders;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN == null ? 0 : THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+
+    /**
+     * Times a {@link Phase} on the current thread until it is closed.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final Phase phase;
+        private Timer parent;
+        private PhaseEvent event;
+        private long nanos;
+        private long allocated;
+        private long ownAllocated;
+
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+        }
+
+
+        private void start() {
+            parent = CURRENT.get();
+            if (parent != null) {
+                parent.pause();
+            }
+            CURRENT.set(this);
+            event = new PhaseEvent();
+            event.phase = phase.name();
+            event.begin();
+            resume();
+        }
+
+        private void pause() {
+            long delta = allocatedBytes() - allocated;
+            NANOS.get(phase).add(System.nanoTime() - nanos);
+            ALLOCATED.get(phase).add(delta);
+            ownAllocated += delta;
+        }
+
+        private void resume() {
+            nanos = System.nanoTime();
+            allocated = allocatedBytes();
+        }
+
+        @Override
+        public void close() {
+            if (phase == null) {
+                return;
+            }
+            pause();
+            INVOCATIONS.get(phase).increment();
+            event.allocated = ownAllocated;
+            event.commit();
+
+            CURRENT.set(parent);
+            if (parent != null) {
+                parent.resume();
+            }
+        }
+    }
+
+    /**
+     * A JFR event for a {@link Phase}. Its duration includes nested phases, its allocation doesn't.
+     */
+    @Name("voruti.json2config.Phase")
+    @Label("json2config Phase")
+    @Category("json2config")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
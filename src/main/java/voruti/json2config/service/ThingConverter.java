@@ -0,0 +1,165 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.json.JsonThing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Converts the Thing JsonDB into a ".things" file. Things are grouped per bridge: things whose UID openHAB would derive
+ * from their bridge are nested in its block, the other things of the bridge follow it, referring to the bridge. Bridges
+ * and things without bridge are sorted by UID, as are the things of each bridge.
+ *
+ * @author voruti
+ */
+@Slf4j
+public final class ThingConverter {
+
+    private static final String INDENT = "    ";
+
+
+    private ThingConverter() {
+    }
+
+
+    /**
+     * Converts {@code jsonFile} to {@code outputFile}. The JSON is streamed, only the rendered parts of every thing are
+     * kept until all things are known.
+     *
+     * @param jsonFile   path to the Thing JsonDB file (input)
+     * @param outputFile path to the ".things" file (output)
+     * @param manifest   the {@link Manifest} of the last run, or {@code null} to convert anyway
+     * @return {@code true} if the conversion was successful, {@code false} otherwise
+     */
+    public static boolean start(String jsonFile, String outputFile, Manifest manifest) {
+        log.debug("Starting ThingConverter with jsonFile={}, outputFile={}", jsonFile, outputFile);
+
+        if (manifest != null && Filter.active().isEmpty() && manifest.isUnchanged(jsonFile) && manifest.isUnchanged(outputFile)) {
+            log.info("File {} is unchanged since the last run, skipping", jsonFile);
+            return true;
+        }
+
+        List<JsonThing> things = new ArrayList<>();
+        try {
+            SharedService.streamJsonFile(jsonFile, Type.THING, (key, convertible) -> things.add((JsonThing) convertible));
+        } catch (IOException e) {
+            log.error(Constants.LOG_CANT_OPEN_FILE, jsonFile);
+            return false;
+        }
+        log.info("Found {} things", things.size());
+
+        List<String> lines;
+        try (Stats.Timer ignored = Stats.time(Stats.Phase.RENDER)) {
+            lines = arrange(things);
+        }
+        Diff.Outcome outcome = SharedService.updateFile(lines, outputFile);
+        if (outcome == Diff.Outcome.UNCHANGED) {
+            log.info("File {} is already up to date", outputFile);
+        } else if (outcome == Diff.Outcome.WRITTEN) {
+            log.info("Written {} things to file {}!", things.size(), outputFile);
+        }
+
+        if (manifest != null) {
+            manifest.recordFile(jsonFile);
+            manifest.recordFile(outputFile);
+        }
+        return outcome != Diff.Outcome.FAILED;
+    }
+
+    /**
+     * Renders the {@code things} grouped per bridge and sorted, separating the groups with empty lines.
+     *
+     * @param things the things to render
+     * @return the lines of the ".things" file
+     */
+    public static List<String> arrange(Collection<JsonThing> things) {
+        Map<String, JsonThing> topLevel = new TreeMap<>();
+        Map<String, List<JsonThing>> byBridge = new TreeMap<>();
+        for (JsonThing thing : things) {
+            topLevel.put(thing.getUID(), thing);
+        }
+        Set<String> cyclic = bridgeCycles(topLevel);
+        for (JsonThing thing : things) {
+            if (thing.getBridgeUID() != null && !cyclic.contains(thing.getUID())) {
+                byBridge.computeIfAbsent(thing.getBridgeUID(), bridgeUID -> new ArrayList<>()).add(thing);
+            }
+        }
+        // things of a known bridge are rendered with it:
+        byBridge.keySet().removeIf(bridgeUID -> !topLevel.containsKey(bridgeUID));
+        byBridge.values().forEach(children -> {
+            children.forEach(child -> topLevel.remove(child.getUID()));
+            children.sort(Comparator.comparing(JsonThing::getUID));
+        });
+
+        List<String> lines = new ArrayList<>();
+        for (JsonThing thing : topLevel.values()) {
+            if (!lines.isEmpty()) {
+                lines.add("");
+            }
+            List<JsonThing> referring = new ArrayList<>();
+            render(thing, byBridge, "", null, lines, referring);
+            // things of the bridge that can't be nested follow it:
+            for (int i = 0; i < referring.size(); i++) {
+                render(referring.get(i), byBridge, "", null, lines, referring);
+            }
+        }
+        return lines;
+    }
+
+
+    /**
+     * Finds the things which are their own bridge, directly or through other things. They can't be nested in or follow
+     * their bridge, so they are defined on their own instead.
+     *
+     * @param byUID all things by UID
+     * @return the UIDs of the things on a bridge cycle
+     */
+    private static Set<String> bridgeCycles(Map<String, JsonThing> byUID) {
+        Set<String> cyclic = new TreeSet<>();
+        Set<String> acyclic = new HashSet<>();
+        for (String start : byUID.keySet()) {
+            // follow the bridges until a known thing or one already on the path:
+            Set<String> path = new LinkedHashSet<>();
+            String uid = start;
+            while (uid != null && byUID.containsKey(uid) && !acyclic.contains(uid) && !cyclic.contains(uid)
+                    && path.add(uid)) {
+                uid = byUID.get(uid).getBridgeUID();
+            }
+            boolean onCycle = false;
+            for (String visited : path) {
+                onCycle |= visited.equals(uid);
+                (onCycle ? cyclic : acyclic).add(visited);
+            }
+        }
+        cyclic.forEach(uid -> log.warn("Thing {} is its own bridge (directly or through other things), "
+                + "defining it on its own", uid));
+        return cyclic;
+    }
+
+    /**
+     * Renders the {@code thing} and, if it is a bridge, the things nested in it. Its things that can't be nested are
+     * added to {@code referring} instead.
+     */
+    private static void render(JsonThing thing, Map<String, List<JsonThing>> byBridge, String indent, JsonThing parent,
+                               List<String> lines, List<JsonThing> referring) {
+        List<String> nestedLines = new ArrayList<>();
+        for (JsonThing child : byBridge.getOrDefault(thing.getUID(), List.of())) {
+            if (child.isNestableIn(thing)) {
+                render(child, byBridge, indent + INDENT, thing, nestedLines, referring);
+            } else {
+                referring.add(child);
+            }
+        }
+        lines.addAll(thing.toConfigLines(indent, parent, nestedLines));
+    }
+}
@@ -0,0 +1,281 @@
+package voruti.json2config.service;
+
+import lombok.extern.slf4j.Slf4j;
+import voruti.json2config.model.IAppendable;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the converted {@code outputFile} in sync with the JsonDB files. Every entry is hashed, so on a change only the
+ * items, channel links and metadata whose JSON actually changed are parsed and rendered again. Their lines replace
+ * the old ones in the output lines kept in memory, and the whole {@code outputFile} is rewritten from these (only if
+ * its content changes, see {@link Diff}).
+ *
+ * @author voruti
+ */
+@Slf4j
+public class Watcher {
+
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private final String jsonFile;
+    private final String outputFile;
+    private final List<AppendableSource> appendableSources = new ArrayList<>();
+
+    private final Map<String, String> itemHashes = new HashMap<>();
+    private final Map<String, String> itemLines = new HashMap<>();
+    private final Map<String, String> lines = new HashMap<>();
+    private List<String> outputLines = new ArrayList<>();
+    private final Map<String, Integer> outputIndex = new HashMap<>();
+    private final Set<String> changedItems = new HashSet<>();
+    private boolean structural;
+
+
+    /**
+     * @param jsonFile     path to the file which contains the items in JSON format
+     * @param channelFile  path to the file which contains the channel links in JSON format, or {@code null}
+     * @param metadataFile path to the file which contains the metadata in JSON format, or {@code null}
+     * @param outputFile   path to the file (output)
+     */
+    public Watcher(String jsonFile, String channelFile, String metadataFile, String outputFile) {
+        this.jsonFile = jsonFile;
+        this.outputFile = outputFile;
+        if (channelFile != null) {
+            appendableSources.add(new AppendableSource(channelFile, Type.CHANNEL));
+        }
+        if (metadataFile != null) {
+            appendableSources.add(new AppendableSource(metadataFile, Type.METADATA));
+        }
+    }
+
+
+    /**
+     * Converts all JsonDB files once and then blocks, updating the {@code outputFile} whenever one of them changes.
+     *
+     * @throws IOException if the directories of the JsonDB files can't be watched
+     */
+    public void watch() throws IOException {
+        update();
+
+        Set<Path> watchedFiles = new HashSet<>();
+        watchedFiles.add(Paths.get(jsonFile).toAbsolutePath());
+        appendableSources.forEach(source -> watchedFiles.add(Paths.get(source.file).toAbsolutePath()));
+
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            for (Path directory : watchedFiles.stream().map(Path::getParent).collect(Collectors.toSet())) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            log.info("Watching {} for changes", watchedFiles);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean relevant = pollRelevant(key, watchedFiles);
+
+                // openHAB writes the files in several steps, so wait until they are quiet:
+                WatchKey next;
+                while ((next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= pollRelevant(next, watchedFiles);
+                }
+
+                if (relevant) {
+                    update();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Watch service closed");
+        }
+    }
+
+    /**
+     * Re-reads all JsonDB files, re-renders the entries which changed since the last update and rewrites the
+     * {@code outputFile}.
+     *
+     * @return {@code true} if the {@code outputFile} was written, {@code false} otherwise
+     */
+    public boolean update() {
+        // changes stay pending until they are rendered, even if reading a later file fails:
+        try {
+            structural |= updateItems(changedItems);
+            for (AppendableSource source : appendableSources) {
+                source.update(changedItems);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Can't update from JsonDB files, waiting for next change: {}", e.toString());
+            return false;
+        }
+
+        // render the final lines of all affected items:
+        StringBuilder buffer = new StringBuilder(256);
+        for (String itemName : changedItems) {
+            String line = itemLines.get(itemName);
+            if (line == null) {
+                lines.remove(itemName);
+                continue;
+            }
+            buffer.setLength(0);
+            buffer.append(line);
+            for (AppendableSource source : appendableSources) {
+                for (IAppendable appendable : source.appendablesByItemName.getOrDefault(itemName, List.of())) {
+                    appendable.appendToLine(buffer);
+                }
+            }
+            line = buffer.toString();
+            String oldLine = lines.put(itemName, line);
+            structural |= oldLine == null || !firstToken(oldLine).equals(firstToken(line));
+        }
+        changedItems.retainAll(lines.keySet());
+        if (changedItems.isEmpty() && !structural) {
+            log.debug("Nothing changed");
+            return false;
+        }
+        int changed = structural ? lines.size() : changedItems.size();
+
+        if (structural) {
+            // items were added, removed or changed their type, so their position changes:
+            outputLines = Converter.arrangeLines(new ArrayList<>(lines.values()));
+            outputIndex.clear();
+            for (int i = 0; i < outputLines.size(); i++) {
+                if (!outputLines.get(i).isEmpty()) {
+                    outputIndex.put(Appender.searchNameInLine(outputLines.get(i)), i);
+                }
+            }
+        } else {
+            for (String itemName : changedItems) {
+                outputLines.set(outputIndex.get(itemName), lines.get(itemName));
+            }
+        }
+        changedItems.clear();
+        structural = false;
+        log.info("Updating {} items in file {}", changed, outputFile);
+
+        return SharedService.writeLinesToFile(outputLines, outputFile);
+    }
+
+    /**
+     * Re-reads the items and renders the ones whose JSON changed.
+     *
+     * @param changedItems collects the names of all changed items
+     * @return {@code true} if items were added or removed, {@code false} otherwise
+     * @throws IOException if the file can't be opened
+     */
+    private boolean updateItems(Set<String> changedItems) throws IOException {
+        Map<String, String> newHashes = new HashMap<>();
+        SharedService.streamJsonElementsFile(jsonFile, (key, element) -> {
+            String hash = SharedService.hash(element.toString());
+            newHashes.put(key, hash);
+            if (!hash.equals(itemHashes.get(key))) {
+                itemLines.put(key, SharedService.fromJsonElement(element, Type.ITEM).toConfigLine(key));
+                changedItems.add(key);
+            }
+        });
+
+        boolean structural = false;
+        for (String key : itemHashes.keySet()) {
+            if (!newHashes.containsKey(key)) {
+                itemLines.remove(key);
+                changedItems.add(key);
+                structural = true;
+            }
+        }
+        itemHashes.clear();
+        itemHashes.putAll(newHashes);
+
+        return structural;
+    }
+
+    private static boolean pollRelevant(WatchKey key, Set<Path> watchedFiles) {
+        boolean relevant = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path && watchedFiles.contains(directory.resolve((Path) event.context()))) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    private static String firstToken(String line) {
+        int end = line.indexOf(' ');
+        return end < 0 ? line : line.substring(0, end);
+    }
+
+
+    /**
+     * The channel links or metadata of one JsonDB file, kept in file order.
+     */
+    private static class AppendableSource {
+        private final String file;
+        private final Type type;
+        private final Map<String, String> hashes = new HashMap<>();
+        private Map<String, IAppendable> appendables = new LinkedHashMap<>();
+        private Map<String, List<IAppendable>> appendablesByItemName = new HashMap<>();
+
+
+        private AppendableSource(String file, Type type) {
+            this.file = file;
+            this.type = type;
+        }
+
+
+        /**
+         * Re-reads the {@code file} and parses the entries whose JSON changed.
+         *
+         * @param changedItems collects the names of all items whose appendables changed
+         * @throws IOException if the file can't be opened
+         */
+        private void update(Set<String> changedItems) throws IOException {
+            Map<String, String> newHashes = new HashMap<>();
+            Map<String, IAppendable> newAppendables = new LinkedHashMap<>();
+            SharedService.streamJsonElementsFile(file, (key, element) -> {
+                String hash = SharedService.hash(element.toString());
+                newHashes.put(key, hash);
+                IAppendable old = appendables.get(key);
+                if (hash.equals(hashes.get(key))) {
+                    newAppendables.put(key, old);
+                } else {
+                    IAppendable appendable = (IAppendable) SharedService.fromJsonElement(element, type);
+                    newAppendables.put(key, appendable);
+                    changedItems.add(appendable.getItemName());
+                    if (old != null) {
+                        changedItems.add(old.getItemName());
+                    }
+                }
+            });
+
+            appendables.forEach((key, old) -> {
+                if (!newHashes.containsKey(key)) {
+                    changedItems.add(old.getItemName());
+                }
+            });
+            hashes.clear();
+            hashes.putAll(newHashes);
+            appendables = newAppendables;
+
+            appendablesByItemName = new HashMap<>();
+            for (IAppendable appendable : appendables.values()) {
+                appendablesByItemName.computeIfAbsent(appendable.getItemName(), k -> new ArrayList<>()).add(appendable);
+            }
+            log.debug("Found {} entries of type {} in file {}", appendables.size(), type, file);
+        }
+    }
+}
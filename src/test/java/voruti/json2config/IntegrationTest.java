@@ -1,14 +1,19 @@
 package voruti.json2config;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import voruti.json2config.service.Filter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class IntegrationTest {
 
@@ -22,6 +27,11 @@ class IntegrationTest {
                 .replaceAll("[\\h\\t ]{2,}", " ");
     }
 
+    @AfterEach
+    void resetFilter() {
+        Filter.activate(Filter.NONE);
+    }
+
 
     @ParameterizedTest
     @ValueSource(strings = {"openhab2_example1", "openhab2_multipleChannelsOneItem"})
@@ -67,4 +77,87 @@ class IntegrationTest {
 
         assertEquals(template, generated);
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"openhab2_example1"})
+    void onlyThings(String testName) throws IOException {
+        // arrange:
+        final String generatedThingsFile = TEMPORARY + testName + "_result.things";
+
+        // load template .things file:
+        String template = openFile(RESOURCES + testName + ".things");
+
+        // act:
+        Starter.main(new String[]{"-n",
+                "--things",
+                "--thing-file", RESOURCES + testName + ".Thing.json",
+                "--things-out", generatedThingsFile});
+
+        // assert:
+        // load generated .things file:
+        String generated = openFile(generatedThingsFile);
+
+        assertEquals(template, generated);
+    }
+
+    @Test
+    void incrementalRunAppendsChannelsAndMetadataToEditedFile() throws IOException {
+        // arrange:
+        final String testName = "openhab2_example1";
+        final String directory = TEMPORARY + "incremental/";
+        final Path plainItemsFile = Paths.get(TEMPORARY + testName + "_plain.items");
+        final Path itemsFile = Paths.get(directory + "home.items");
+        final String[] args = {"-n", "--incremental",
+                "-o", directory + "json.items",
+                "-c",
+                "-m",
+                "-d", directory,
+                "--channel-file", RESOURCES + testName + ".ItemChannelLink.json",
+                "--metadata-file", RESOURCES + testName + ".Metadata.json"};
+
+        // converted items without channel links and metadata:
+        Starter.main(new String[]{"-i", RESOURCES + testName + ".Item.json",
+                "-o", plainItemsFile.toString()});
+        Files.createDirectories(itemsFile.getParent());
+        Files.deleteIfExists(Paths.get(directory + "json.items.manifest.json"));
+        Files.copy(plainItemsFile, itemsFile, StandardCopyOption.REPLACE_EXISTING);
+        Starter.main(args);
+        String appended = openFile(itemsFile.toString());
+
+        // act:
+        // edit the file since the last run:
+        Files.copy(plainItemsFile, itemsFile, StandardCopyOption.REPLACE_EXISTING);
+        Starter.main(args);
+
+        // assert:
+        assertEquals(appended, openFile(itemsFile.toString()));
+        assertTrue(appended.contains("channel="));
+        assertTrue(appended.contains("alexa="));
+    }
+
+    @Test
+    void groupFilterAppliesToAppendedChannelsAndMetadata() throws IOException {
+        // arrange:
+        final String testName = "openhab2_example1";
+        final String directory = TEMPORARY + "filtered/";
+        final Path itemsFile = Paths.get(directory + "home.items");
+        Files.createDirectories(itemsFile.getParent());
+        Starter.main(new String[]{"-i", RESOURCES + testName + ".Item.json",
+                "-o", itemsFile.toString()});
+
+        // act:
+        Starter.main(new String[]{"-n",
+                "-i", RESOURCES + testName + ".Item.json",
+                "-c",
+                "-m",
+                "-d", directory,
+                "--channel-file", RESOURCES + testName + ".ItemChannelLink.json",
+                "--metadata-file", RESOURCES + testName + ".Metadata.json",
+                "--group", "gWindow"});
+
+        // assert:
+        for (String line : Files.readAllLines(itemsFile)) {
+            assertEquals(line.contains("gWindow)"), line.contains("{"), line);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package voruti.json2config;
+
+import org.junit.jupiter.api.Test;
+import voruti.json2config.Json2Config.Input;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Json2ConfigTest {
+
+    private static final String RESOURCES = "build/resources/test/";
+    private static final Json2Config SESSION = new Json2Config();
+
+
+    private static String normalize(List<String> lines) {
+        return String.join("\n", lines).replaceAll("[\\h\\t ]{2,}", " ");
+    }
+
+    private static Path resource(String name) {
+        return Paths.get(RESOURCES + name);
+    }
+
+
+    @Test
+    void convertItemsLikeTheCommandLine() throws IOException {
+        // arrange:
+        String template = normalize(Files.readAllLines(resource("openhab2_example1.items")));
+
+        // act:
+        List<String> lines = SESSION.convertItems(Input.of(resource("openhab2_example1.Item.json")),
+                Input.of(Files.newInputStream(resource("openhab2_example1.ItemChannelLink.json"))),
+                Input.ofString(Files.readString(resource("openhab2_example1.Metadata.json"))));
+
+        // assert:
+        assertEquals(template, normalize(lines));
+    }
+
+    @Test
+    void concurrentCallsGiveTheSameResult() throws Exception {
+        // arrange:
+        Input items = Input.of(resource("openhab2_multipleChannelsOneItem.Item.json"));
+        Input channelLinks = Input.of(resource("openhab2_multipleChannelsOneItem.ItemChannelLink.json"));
+        List<String> expected = SESSION.convertItems(items, channelLinks, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // act:
+        List<Callable<List<String>>> calls = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            calls.add(() -> SESSION.convertItems(items, channelLinks, null));
+        }
+        List<Future<List<String>>> results = executor.invokeAll(calls);
+        executor.shutdown();
+
+        // assert:
+        for (Future<List<String>> result : results) {
+            assertEquals(expected, result.get());
+        }
+    }
+
+    @Test
+    void appendToItemsInMemory() throws IOException {
+        // arrange:
+        String itemsFile = "Switch Light_1 \"Light\"\n";
+        String channelLinks = "{\"Light_1 -> mqtt:topic:broker:light\": {\"value\": {"
+                + "\"channelUID\": {\"segments\": [\"mqtt\", \"topic\", \"broker\", \"light\"]},"
+                + "\"configuration\": {\"properties\": {}}, \"itemName\": \"Light_1\"}}}";
+
+        // act:
+        String appended = SESSION.appendToItems(
+                Input.of(new ByteArrayInputStream(itemsFile.getBytes(StandardCharsets.UTF_8))),
+                Input.ofString(channelLinks), null);
+
+        // assert:
+        assertTrue(appended.contains("{channel=\"mqtt:topic:broker:light\"}"), appended);
+    }
+}
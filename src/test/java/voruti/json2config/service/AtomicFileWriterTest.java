@@ -0,0 +1,70 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AtomicFileWriterTest {
+
+    private static final String TEMPORARY = "build/tmp/test/writer/";
+
+
+    private List<String> listFilesStartingWith(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(TEMPORARY))) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) || name.startsWith("." + prefix))
+                    .collect(Collectors.toList());
+        }
+    }
+
+
+    @Test
+    void commitReplacesFile() throws IOException {
+        // arrange:
+        Path file = Paths.get(TEMPORARY + "commit.items");
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of("old"));
+
+        // act:
+        long bytes;
+        try (AtomicFileWriter writer = AtomicFileWriter.open(file.toString())) {
+            writer.writeLine("Number:Temperature Temp_1 \"Temperature [%.1f \u00b0C]\"");
+            writer.writeLine("");
+            writer.commit();
+            bytes = writer.getBytes();
+            assertEquals(2, writer.getLines());
+        }
+
+        // assert:
+        assertEquals(List.of("Number:Temperature Temp_1 \"Temperature [%.1f \u00b0C]\"", ""),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(Files.size(file), bytes);
+        assertEquals(List.of("commit.items"), listFilesStartingWith("commit"));
+    }
+
+    @Test
+    void closeWithoutCommitKeepsFile() throws IOException {
+        // arrange:
+        Path file = Paths.get(TEMPORARY + "abort.items");
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of("old"));
+
+        // act:
+        try (AtomicFileWriter writer = AtomicFileWriter.open(file.toString())) {
+            writer.writeLine("new");
+        }
+
+        // assert:
+        assertEquals(List.of("old"), Files.readAllLines(file));
+        assertEquals(List.of("abort.items"), listFilesStartingWith("abort"));
+    }
+}
@@ -0,0 +1,88 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackupSourceTest {
+
+    private static final String TEMPORARY = "build/tmp/test/backup/";
+    private static final String ITEM_JSON = "{\"Light_1\": {\"class\": \"org.openhab.core.items.ManagedItemProvider$PersistedItem\","
+            + " \"value\": {\"itemType\": \"Switch\", \"groupNames\": [], \"tags\": []}}}";
+
+
+    @Test
+    void newestSnapshotIsStreamedFromZip() throws IOException {
+        // arrange:
+        Path zip = Paths.get(TEMPORARY + "backup.zip");
+        Files.createDirectories(zip.getParent());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            put(out, "userdata/jsondb/backup/1600000000000--" + Constants.DEFAULT_V3_JSON_FILE, "not even JSON");
+            put(out, "userdata/jsondb/backup/1700000000000--" + Constants.DEFAULT_V3_JSON_FILE, ITEM_JSON);
+            put(out, "userdata/jsondb/backup/1650000000000--" + Constants.DEFAULT_V3_JSON_FILE, "not even JSON");
+            put(out, "userdata/jsondb/backup/99999999999999999999--" + Constants.DEFAULT_V3_JSON_FILE, "not even JSON");
+            put(out, "userdata/jsondb/backup/1600000000000--" + Constants.DEFAULT_V3_CHANNEL_FILE, "{}");
+            put(out, "userdata/jsondb/" + Constants.DEFAULT_V3_CHANNEL_FILE, "{}");
+        }
+
+        // act:
+        List<String> keys = new ArrayList<>();
+        String itemFile;
+        String channelFile;
+        String metadataFile;
+        try (BackupSource source = BackupSource.open(zip.toString())) {
+            itemFile = source.resolve(Constants.DEFAULT_V2_JSON_FILE, Constants.DEFAULT_V3_JSON_FILE);
+            channelFile = source.resolve(Constants.DEFAULT_V2_CHANNEL_FILE, Constants.DEFAULT_V3_CHANNEL_FILE);
+            metadataFile = source.resolve(Constants.DEFAULT_V2_METADATA_FILE, Constants.DEFAULT_V3_METADATA_FILE);
+            SharedService.streamJsonFile(itemFile, Type.ITEM, (key, convertible) -> keys.add(key));
+        }
+
+        // assert:
+        assertTrue(itemFile.endsWith("/1700000000000--" + Constants.DEFAULT_V3_JSON_FILE), itemFile);
+        assertTrue(channelFile.endsWith("/jsondb/" + Constants.DEFAULT_V3_CHANNEL_FILE), channelFile);
+        assertNull(metadataFile);
+        assertEquals(List.of("Light_1"), keys);
+    }
+
+    @Test
+    void zipOpenedTwiceStaysOpenUntilTheFirstIsClosed() throws IOException {
+        // arrange:
+        Path zip = Paths.get(TEMPORARY + "shared.zip");
+        Files.createDirectories(zip.getParent());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            put(out, "jsondb/" + Constants.DEFAULT_V3_JSON_FILE, ITEM_JSON);
+        }
+
+        // act:
+        List<String> keys = new ArrayList<>();
+        try (BackupSource first = BackupSource.open(zip.toString())) {
+            String itemFile;
+            try (BackupSource second = BackupSource.open(zip.toString())) {
+                itemFile = second.resolve(Constants.DEFAULT_V2_JSON_FILE, Constants.DEFAULT_V3_JSON_FILE);
+            }
+            SharedService.streamJsonFile(itemFile, Type.ITEM, (key, convertible) -> keys.add(key));
+        }
+
+        // assert:
+        assertEquals(List.of("Light_1"), keys);
+    }
+
+
+    private static void put(ZipOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,77 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchTest {
+
+    private static final String TEMPORARY = "build/tmp/test/batch/";
+
+
+    @Test
+    void loadResolvesPathsAndDetectsVersion() throws IOException {
+        // arrange:
+        Path base = Paths.get(TEMPORARY).toAbsolutePath();
+        Files.createDirectories(base.resolve("v3/jsondb"));
+        Files.write(base.resolve("v3/jsondb/" + Constants.DEFAULT_V3_JSON_FILE), List.of("{}"));
+        Files.write(base.resolve("batch.json"), List.of("[",
+                "  {\"name\": \"three\", \"jsondb\": \"v3/jsondb\", \"directory\": \"v3/items\"},",
+                "  {\"jsondb\": \"v2/jsondb\", \"directory\": \"v2/items\", \"output\": \"v2/out.items\"}",
+                "]"));
+
+        // act:
+        List<Batch.Job> jobs = Batch.load(TEMPORARY + "batch.json");
+
+        // assert:
+        assertEquals(2, jobs.size());
+        assertEquals("three", jobs.get(0).getName());
+        assertEquals(3, jobs.get(0).getVersion());
+        assertEquals(base.resolve("v3/items/json.items").toString(), jobs.get(0).getOutput());
+        assertEquals(base.resolve("v3/jsondb/" + Constants.DEFAULT_V3_JSON_FILE).toString(),
+                jobs.get(0).jsonDbFile(Constants.DEFAULT_V2_JSON_FILE, Constants.DEFAULT_V3_JSON_FILE));
+        assertEquals(base.resolve("v2/jsondb").toString(), jobs.get(1).getName());
+        assertEquals(2, jobs.get(1).getVersion());
+        assertEquals(base.resolve("v2/out.items").toString(), jobs.get(1).getOutput());
+    }
+
+    @Test
+    void failingJobDoesNotStopOthers() throws IOException {
+        // arrange:
+        Path base = Paths.get(TEMPORARY).toAbsolutePath();
+        Files.createDirectories(base);
+        Files.write(base.resolve("jobs.json"), List.of("[",
+                "  {\"name\": \"ok\", \"jsondb\": \"a\", \"directory\": \"a\"},",
+                "  {\"name\": \"broken\", \"jsondb\": \"b\", \"directory\": \"b\"},",
+                "  {\"name\": \"ok too\", \"jsondb\": \"c\", \"directory\": \"c\"}",
+                "]"));
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        // act:
+        List<Batch.Result> results = Batch.run(Batch.load(TEMPORARY + "jobs.json"), 2, job -> {
+            if (job.getName().equals("broken")) {
+                throw new IllegalStateException("Missing file");
+            }
+            ran.add(job.getName());
+        });
+
+        // assert:
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Missing file", results.get(1).getError());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(2, ran.size());
+        assertFalse(Batch.logSummary(results));
+    }
+}
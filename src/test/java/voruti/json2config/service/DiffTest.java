@@ -0,0 +1,69 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffTest {
+
+    private static final String TEMPORARY = "build/tmp/test/diff/";
+
+
+    @Test
+    void unifiedDiffOfChangedLine() {
+        // arrange:
+        List<String> oldLines = List.of("Group gLiving", "", "Number Power_1", "Switch Light_1", "Switch Light_2",
+                "Switch Light_3", "Switch Light_4", "Switch Light_5");
+        List<String> newLines = List.of("Group gLiving", "", "Number Power_1", "Switch Light_1",
+                "Switch Light_2 {channel=\"mqtt:topic:a:b\"}", "Switch Light_3", "Switch Light_4", "Switch Light_5",
+                "Switch Light_6");
+
+        // act:
+        List<String> diff = Diff.unified("json.items", oldLines, newLines);
+
+        // assert:
+        assertEquals(List.of(
+                "--- a/json.items",
+                "+++ b/json.items",
+                "@@ -2,7 +2,8 @@",
+                " ",
+                " Number Power_1",
+                " Switch Light_1",
+                "-Switch Light_2",
+                "+Switch Light_2 {channel=\"mqtt:topic:a:b\"}",
+                " Switch Light_3",
+                " Switch Light_4",
+                " Switch Light_5",
+                "+Switch Light_6"), diff);
+    }
+
+    @Test
+    void unchangedFileIsNotWritten() throws IOException {
+        // arrange:
+        Path file = Paths.get(TEMPORARY + "unchanged.items");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "Switch Light_1\n", StandardCharsets.UTF_8);
+        FileTime modified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, modified);
+        Files.deleteIfExists(Paths.get(TEMPORARY + "new.items"));
+
+        // act:
+        Diff.Outcome unchanged = Diff.update(file.toString(), "Switch Light_1\n");
+        Diff.Outcome written = Diff.update(TEMPORARY + "new.items", "Switch Light_1\n");
+
+        // assert:
+        assertEquals(Diff.Outcome.UNCHANGED, unchanged);
+        assertEquals(modified, Files.getLastModifiedTime(file));
+        assertEquals(Diff.Outcome.WRITTEN, written);
+        assertTrue(Files.exists(Paths.get(TEMPORARY + "new.items")));
+    }
+}
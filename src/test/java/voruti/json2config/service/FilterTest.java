@@ -0,0 +1,47 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterTest {
+
+    @Test
+    void keysAreMatchedByItemNameAndBinding() {
+        // arrange:
+        Filter filter = new Filter(List.of("GF_*", "Light_?"), List.of("*_Motion"), List.of(), List.of(), List.of(),
+                List.of("zwave"));
+
+        // act & assert:
+        assertTrue(filter.acceptsKey(Type.ITEM, "GF_Kitchen_Light"));
+        assertTrue(filter.acceptsKey(Type.ITEM, "Light_1"));
+        assertFalse(filter.acceptsKey(Type.ITEM, "Light_10"));
+        assertFalse(filter.acceptsKey(Type.ITEM, "GF_Kitchen_Motion"));
+        assertTrue(filter.acceptsKey(Type.METADATA, "alexa:GF_Kitchen_Light"));
+        assertFalse(filter.acceptsKey(Type.METADATA, "alexa:FF_Bath_Light"));
+        assertTrue(filter.acceptsKey(Type.CHANNEL, "GF_Kitchen_Light -> zwave:device:stick:node5:switch_binary"));
+        assertFalse(filter.acceptsKey(Type.CHANNEL, "GF_Kitchen_Light -> mqtt:topic:broker:light"));
+        assertTrue(filter.acceptsKey(Type.THING, "zwave:device:stick:node5"));
+        assertFalse(filter.acceptsKey(Type.THING, "mqtt:topic:broker"));
+    }
+
+    @Test
+    void itemsAreMatchedByGroupTagAndType() {
+        // arrange:
+        Filter filter = new Filter(List.of(), List.of(), List.of("gLight"), List.of(), List.of("Number"), List.of());
+        String json = "{"
+                + "\"Temp_1\": {\"value\": {\"itemType\": \"Number:Temperature\", \"groupNames\": [\"gLight\"]}},"
+                + "\"Power_1\": {\"value\": {\"itemType\": \"Number\", \"groupNames\": [\"gPower\"]}},"
+                + "\"Light_1\": {\"value\": {\"itemType\": \"Switch\", \"groupNames\": [\"gLight\"]}}}";
+
+        // act & assert:
+        SharedService.jsonToConvertibleMap(json, Type.ITEM).forEach((name, item) ->
+                assertEquals(name.equals("Temp_1"), filter.accepts(Type.ITEM, item), name));
+        assertTrue(filter.hasContentCriteria());
+        assertFalse(Filter.NONE.hasContentCriteria());
+    }
+}
@@ -0,0 +1,118 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+import voruti.json2config.model.IAppendable;
+import voruti.json2config.model.items.Binding;
+import voruti.json2config.model.items.ItemDefinition;
+import voruti.json2config.model.items.ItemsFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemsParserTest {
+
+    private static final String CONTENT = "// living room\n"
+            + "Group   gLiving   \"Living room\"   <sofa>\n"
+            + "\n"
+            + "Switch  Light_1   \"Light\" <light> (gLiving, gLights) [\"Lighting\"] /* inline */ {\n"
+            + "    channel=\"hue:0210:bridge:1:color\"[profile=\"system:default\"],\n"
+            + "    ga=\"Light\"\n"
+            + "}\n"
+            + "Number:Temperature Temp_1 \"Temperature [%.1f \u00b0C]\" {channel=\"mqtt:topic:a:temp\"}\n"
+            + "this is not an item\n";
+
+
+    @Test
+    void parseKeepsContentUnchanged() {
+        // act:
+        ItemsFile itemsFile = ItemsParser.parse(CONTENT);
+
+        // assert:
+        assertEquals(CONTENT, itemsFile.toString());
+        assertFalse(itemsFile.isModified());
+
+        List<ItemDefinition> items = itemsFile.getItems();
+        assertEquals(3, items.size());
+        assertEquals("gLiving", items.get(0).getName());
+        assertEquals("sofa", items.get(0).getIcon());
+
+        ItemDefinition light = items.get(1);
+        assertEquals("Switch", light.getType());
+        assertEquals("Light", light.getLabel());
+        assertEquals(List.of("gLiving", "gLights"), light.getGroups());
+        assertEquals(List.of("Lighting"), light.getTags());
+        assertEquals(2, light.getBindings().size());
+        assertEquals("[profile=\"system:default\"]", light.getBindings().get(0).getConfig());
+
+        assertEquals("Number:Temperature", items.get(2).getType());
+        assertEquals("Temperature [%.1f \u00b0C]", items.get(2).getLabel());
+    }
+
+    @Test
+    void addBindingInsertsBeforeClosingBracket() {
+        // arrange:
+        ItemsFile itemsFile = ItemsParser.parse(CONTENT);
+        List<ItemDefinition> items = itemsFile.getItems();
+
+        // act:
+        assertTrue(items.get(0).addBinding(new Binding("homekit", "Lighting", "")));
+        assertTrue(items.get(1).addBinding(new Binding("alexa", "Light", "")));
+        assertTrue(items.get(2).addBinding(new Binding("channel", "mqtt:topic:a:humidity", "")));
+
+        // assert:
+        assertTrue(itemsFile.isModified());
+        assertEquals(CONTENT
+                        .replace("<sofa>\n", "<sofa> {homekit=\"Lighting\"}\n")
+                        .replace("ga=\"Light\"\n}", "ga=\"Light\", alexa=\"Light\"\n}")
+                        .replace("a:temp\"}", "a:temp\", channel=\"mqtt:topic:a:humidity\"}"),
+                itemsFile.toString());
+    }
+
+    @Test
+    void addBindingSkipsDuplicates() {
+        // arrange:
+        ItemDefinition item = ItemsParser.parseItem("Switch Light_1 {channel=\"hue:0210:bridge:1:color\", ga=\"Light\"}");
+
+        // act & assert:
+        assertFalse(item.addBinding(new Binding("channel", "hue:0210:bridge:1:color", "")));
+        assertFalse(item.addBinding(new Binding("ga", "Switch", "")));
+        assertTrue(item.addBinding(new Binding("channel", "hue:0210:bridge:1:brightness", "")));
+        assertFalse(item.addBinding(new Binding("channel", "hue:0210:bridge:1:brightness", "")));
+        assertEquals("Switch Light_1 {channel=\"hue:0210:bridge:1:color\", ga=\"Light\", "
+                + "channel=\"hue:0210:bridge:1:brightness\"}", item.toString());
+    }
+
+    @Test
+    void appenderFindsTheItemsOfTheParser() throws IOException {
+        // arrange:
+        Path file = Paths.get("build/tmp/test/items/split.items");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "// Switch Commented_Out\n"
+                + "Switch\n"
+                + "    Light_2 \"Light\"\n"
+                + "Number K\u00fcche_Temp\n", StandardCharsets.UTF_8);
+        String channelLinks = "{\"Light_2 -> mqtt:topic:broker:light\": {\"value\": {"
+                + "\"channelUID\": {\"segments\": [\"mqtt\", \"topic\", \"broker\", \"light\"]},"
+                + "\"configuration\": {\"properties\": {}}, \"itemName\": \"Light_2\"}}}";
+        IAppendable channelLink = (IAppendable) SharedService.jsonToConvertibleMap(channelLinks, Type.CHANNEL)
+                .values().iterator().next();
+
+        // act:
+        List<String> itemNames = Appender.getItemNamesFromFile(file.toString());
+        int appended = Appender.appendToItemsInFile(Map.of("Light_2", List.of(channelLink)), file.toString());
+
+        // assert:
+        assertEquals(List.of("Light_2", "K\u00fcche_Temp"), itemNames);
+        assertEquals(1, appended);
+        assertTrue(Files.readString(file).contains("{channel=\"mqtt:topic:broker:light\"}"));
+    }
+}
@@ -0,0 +1,83 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LayoutTest {
+
+    private static final List<String> LINES = List.of(
+            "Switch Light_2 \"Light\" (gLiving, gLights)",
+            "Number:Temperature Temp_1 \"Temperature\" (gBath)",
+            "Group gLiving \"Living room\"",
+            "Switch Light_1 \"Light\" (gBath)",
+            "Number Power_1 \"Power\" (gLiving)",
+            "Group:Switch:OR(ON,OFF) gLights \"Lights\"");
+
+
+    @Test
+    void arrangeByType() {
+        // act:
+        List<String> arranged = Layout.DEFAULT.arrange(new ArrayList<>(LINES));
+
+        // assert:
+        assertEquals(List.of(
+                "Group gLiving \"Living room\"",
+                "Group:Switch:OR(ON,OFF) gLights \"Lights\"",
+                "",
+                "Number Power_1 \"Power\" (gLiving)",
+                "Number:Temperature Temp_1 \"Temperature\" (gBath)",
+                "",
+                "Switch Light_1 \"Light\" (gBath)",
+                "Switch Light_2 \"Light\" (gLiving, gLights)"), arranged);
+    }
+
+    @Test
+    void groupByFirstGroup() {
+        // act:
+        Map<String, List<String>> groups = new Layout(Grouping.GROUP, true, 1).group(LINES);
+
+        // assert:
+        assertEquals(List.of("", "gBath", "gLiving"), new ArrayList<>(groups.keySet()));
+        assertEquals(List.of(
+                "Group gLiving \"Living room\"",
+                "Group:Switch:OR(ON,OFF) gLights \"Lights\""), groups.get(""));
+        assertEquals(List.of(
+                "Number Power_1 \"Power\" (gLiving)",
+                "Switch Light_2 \"Light\" (gLiving, gLights)"), groups.get("gLiving"));
+    }
+
+    @Test
+    void spilledLinesAreMergedLikeArranged() throws IOException {
+        // arrange:
+        String outputFile = "build/tmp/test/layout/spilled.items";
+        Files.createDirectories(Paths.get(outputFile).getParent());
+        Layout layout = new Layout(Grouping.TYPE, false, 1, 300);
+
+        // act:
+        try (ExternalSort sort = layout.newSort()) {
+            LINES.forEach(sort::add);
+            assertTrue(sort.hasSpilled());
+            layout.write(sort, outputFile, null);
+        }
+
+        // assert:
+        assertEquals(Layout.DEFAULT.arrange(new ArrayList<>(LINES)),
+                Files.readAllLines(Paths.get(outputFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shardFileName() {
+        assertEquals("conf/json_gLiving.items", Layout.shardFileName("conf/json.items", "gLiving"));
+        assertEquals("conf/json_ungrouped.items", Layout.shardFileName("conf/json.items", ""));
+    }
+}
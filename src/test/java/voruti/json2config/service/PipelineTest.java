@@ -0,0 +1,87 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipelineTest {
+
+    private static final String TEMPORARY = "build/tmp/test/pipeline/";
+
+
+    @Test
+    void rendersTheSameLinesAsSequentially() throws IOException {
+        // arrange:
+        String itemFile = writeItems(Pipeline.CHUNK_SIZE * 5 + 3);
+        List<String> expected = new ArrayList<>();
+        SharedService.streamJsonFile(itemFile, Type.ITEM,
+                (key, convertible) -> expected.add(convertible.toConfigLine(key)));
+
+        // act:
+        List<String> lines = new ArrayList<>();
+        Pipeline.run(itemFile, Type.ITEM, 3, (key, convertible, buffer) -> {
+            convertible.appendTo(buffer, key);
+            return buffer.toString();
+        }, lines::add);
+
+        // assert:
+        Collections.sort(expected);
+        Collections.sort(lines);
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    void failingStageIsRethrown() throws IOException {
+        // arrange:
+        String itemFile = writeItems(Pipeline.CHUNK_SIZE * 40);
+
+        // act & assert:
+        assertThrows(IllegalArgumentException.class, () -> Pipeline.run(itemFile, Type.ITEM, 2,
+                (key, convertible, buffer) -> {
+                    throw new IllegalArgumentException(key);
+                }, line -> {
+                }));
+    }
+
+    @Test
+    void failingSinkOnTheLastChunksIsRethrown() throws IOException {
+        // arrange:
+        int count = Pipeline.CHUNK_SIZE * 40;
+        String itemFile = writeItems(count);
+        int[] accepted = {0};
+
+        // act & assert:
+        assertThrows(UncheckedIOException.class, () -> Pipeline.run(itemFile, Type.ITEM, 2,
+                (key, convertible, buffer) -> key, line -> {
+                    if (++accepted[0] > count - Pipeline.CHUNK_SIZE * 10) {
+                        throw new UncheckedIOException(new IOException("Disk full"));
+                    }
+                }));
+    }
+
+
+    private static String writeItems(int count) throws IOException {
+        Path file = Paths.get(TEMPORARY, "Item" + count + ".json");
+        Files.createDirectories(file.getParent());
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("\"Light_").append(i).append("\": {\"class\": \"org.openhab.core.items.ManagedItemProvider$PersistedItem\",")
+                    .append("\"value\": {\"groupNames\": [\"gLights\"], \"itemType\": \"Switch\", \"tags\": [],")
+                    .append("\"label\": \"Light ").append(i).append("\"}}");
+        }
+        Files.writeString(file, json.append('}'), StandardCharsets.UTF_8);
+        return file.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsTest {
+
+    @SuppressWarnings("unchecked")
+    private Number phaseValue(Map<String, Object> report, String phase, String key) {
+        return (Number) ((Map<String, Map<String, Object>>) report.get("phases")).get(phase).get(key);
+    }
+
+    @AfterEach
+    void disable() {
+        Stats.disable();
+    }
+
+
+    @Test
+    void nestedPhasesAreExclusive() throws InterruptedException {
+        // arrange:
+        Stats.enable();
+
+        // act:
+        try (Stats.Timer parse = Stats.time(Stats.Phase.PARSE)) {
+            for (int i = 0; i < 3; i++) {
+                try (Stats.Timer render = Stats.time(Stats.Phase.RENDER)) {
+                    Thread.sleep(10);
+                }
+                Stats.count(Stats.Counter.LINES_RENDERED, 1);
+            }
+        }
+        Map<String, Object> report = Stats.report();
+
+        // assert:
+        assertEquals(1L, phaseValue(report, "parse", "invocations").longValue());
+        assertEquals(3L, phaseValue(report, "render", "invocations").longValue());
+        assertEquals(3L, ((Map<?, ?>) report.get("counters")).get("lines_rendered"));
+        // the time spent rendering doesn't count for parsing, too:
+        double parse = phaseValue(report, "parse", "millis").doubleValue();
+        double render = phaseValue(report, "render", "millis").doubleValue();
+        assertTrue(parse < render, parse + " < " + render);
+        assertTrue(parse + render <= (Double) report.get("totalMillis"));
+    }
+}
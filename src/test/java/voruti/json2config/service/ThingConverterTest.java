@@ -0,0 +1,65 @@
+package voruti.json2config.service;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import voruti.json2config.model.json.JsonThing;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThingConverterTest {
+
+    private static String thing(String uid, String bridgeUID) {
+        return "\"" + uid + "\": {\"class\": \"org.openhab.core.thing.internal.BridgeImpl\", \"value\": {"
+                + "\"UID\": \"" + uid + "\", \"bridgeUID\": \"" + bridgeUID + "\"}}";
+    }
+
+
+    @Test
+    void thingsOnABridgeCycleAreDefinedOnTheirOwn() {
+        // arrange:
+        String json = "{" + String.join(",",
+                thing("zwave:serial_zstick:self", "zwave:serial_zstick:self"),
+                thing("mqtt:broker:a", "mqtt:broker:b"),
+                thing("mqtt:broker:b", "mqtt:broker:a"),
+                thing("mqtt:topic:a:sensor", "mqtt:broker:a")) + "}";
+        List<JsonThing> things = SharedService.jsonToConvertibleMap(json, Type.THING).values().stream()
+                .map(JsonThing.class::cast)
+                .collect(Collectors.toList());
+
+        // act:
+        List<String> lines = ThingConverter.arrange(things);
+
+        // assert:
+        assertEquals(List.of(
+                "Bridge mqtt:broker:a (mqtt:broker:b) {",
+                "    Bridge topic sensor",
+                "}",
+                "",
+                "Bridge mqtt:broker:b (mqtt:broker:a)",
+                "",
+                "Bridge zwave:serial_zstick:self (zwave:serial_zstick:self)"), lines);
+    }
+
+    @Test
+    void writtenThingsAreReadTheSame() {
+        // arrange:
+        String json = "{" + String.join(",",
+                thing("mqtt:broker:a", "mqtt:broker:b"),
+                "\"mqtt:topic:a:sensor\": {\"class\": \"org.openhab.core.thing.internal.ThingImpl\", \"value\": {"
+                        + "\"UID\": {\"segments\": [\"mqtt\", \"topic\", \"a\", \"sensor\"]},"
+                        + "\"label\": \"Sensor\", \"location\": \"Kitchen\"}}") + "}";
+        Gson gson = new Gson();
+
+        SharedService.jsonToConvertibleMap(json, Type.THING).forEach((uid, convertible) -> {
+            // act:
+            String written = "{\"" + uid + "\": " + gson.toJson(convertible) + "}";
+            JsonThing read = (JsonThing) SharedService.jsonToConvertibleMap(written, Type.THING).get(uid);
+
+            // assert:
+            assertEquals(convertible.toConfigLine(null), read.toConfigLine(null), written);
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package voruti.json2config.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatcherTest {
+
+    private static final String RESOURCES = "build/resources/test/";
+    private static final String TEMPORARY = "build/tmp/test/watcher/";
+    private static final String TEST_NAME = "openhab2_example1";
+
+
+    private String openFile(Path path) throws IOException {
+        return String.join("\n", Files.readAllLines(path))
+                .replaceAll("[\\h\\t ]{2,}", " ");
+    }
+
+    private Path copy(String suffix) throws IOException {
+        Path target = Paths.get(TEMPORARY + TEST_NAME + suffix);
+        Files.createDirectories(target.getParent());
+        return Files.copy(Paths.get(RESOURCES + TEST_NAME + suffix), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    @Test
+    void updateOnlyRewritesChangedEntries() throws IOException {
+        // arrange:
+        Path items = copy(".Item.json");
+        Path channels = copy(".ItemChannelLink.json");
+        Path metadata = copy(".Metadata.json");
+        Path output = Paths.get(TEMPORARY + TEST_NAME + "_watched.items");
+        Watcher watcher = new Watcher(items.toString(), channels.toString(), metadata.toString(), output.toString());
+
+        // act & assert: initial conversion equals a normal run
+        assertTrue(watcher.update());
+        assertEquals(openFile(Paths.get(RESOURCES + TEST_NAME + ".items")), openFile(output));
+
+        // act & assert: nothing changed
+        assertFalse(watcher.update());
+
+        // act & assert: one label changed
+        String json = new String(Files.readAllBytes(items));
+        Files.write(items, json.replace("\"label\": \"Our Home\"", "\"label\": \"Our House\"").getBytes());
+        assertTrue(watcher.update());
+        String generated = openFile(output);
+        assertTrue(generated.contains("Group Home \"Our House\" <house> [\"Building\"]"));
+        assertEquals(openFile(Paths.get(RESOURCES + TEST_NAME + ".items")).replace("Our Home", "Our House"), generated);
+    }
+}